@@ -0,0 +1,84 @@
+package de.gesellix.couchdb;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the OkHttp calls created by a thread while it runs inside a {@link Scope},
+ * so that they can be cancelled from another thread.
+ * <p>
+ * Interrupting a thread doesn't abort a blocking socket read, but cancelling its call does.
+ * The tracker needs to be registered as the <code>eventListenerFactory</code> of the OkHttpClient.
+ */
+public class CallTracker implements EventListener.Factory {
+
+  private final EventListener.Factory delegate;
+  private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+  public CallTracker() {
+    this(null);
+  }
+
+  /**
+   * @param delegate creates the actual listeners, or null for {@link EventListener#NONE}
+   */
+  public CallTracker(EventListener.Factory delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public EventListener create(Call call) {
+    Scope scope = currentScope.get();
+    if (scope != null) {
+      scope.add(call);
+    }
+    return delegate != null ? delegate.create(call) : EventListener.NONE;
+  }
+
+  /**
+   * Runs the callable on the current thread, recording its calls in the given scope.
+   */
+  public <R> R call(Scope scope, Callable<R> callable) throws Exception {
+    Scope previous = currentScope.get();
+    currentScope.set(scope);
+    try {
+      return callable.call();
+    } finally {
+      if (previous != null) {
+        currentScope.set(previous);
+      } else {
+        currentScope.remove();
+      }
+    }
+  }
+
+  public static class Scope {
+
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    void add(Call call) {
+      calls.add(call);
+      // a call created after cancelling the scope fails when being executed
+      if (cancelled) {
+        call.cancel();
+      }
+    }
+
+    /**
+     * Cancels all recorded calls, and every call created in this scope afterwards.
+     */
+    public void cancel() {
+      cancelled = true;
+      calls.forEach(Call::cancel);
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
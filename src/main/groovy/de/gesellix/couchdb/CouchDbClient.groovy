@@ -1,8 +1,13 @@
 package de.gesellix.couchdb
 
+import de.gesellix.couchdb.limit.BackgroundRequest
+import de.gesellix.couchdb.limit.ConcurrencyLimitInterceptor
 import de.gesellix.couchdb.model.NonReducedViewQueryResponse
 import de.gesellix.couchdb.model.RowReference
+import de.gesellix.couchdb.reduce.ParallelReduce
+import de.gesellix.couchdb.reduce.ReduceCombiner
 import groovy.transform.PackageScope
+import okhttp3.ConnectionPool
 import okhttp3.Credentials
 import okhttp3.OkHttpClient
 import okhttp3.Request
@@ -13,6 +18,8 @@ import org.slf4j.LoggerFactory
 
 import java.lang.reflect.Type
 import java.time.LocalDate
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 import static java.nio.charset.StandardCharsets.UTF_8
 import static okhttp3.MediaType.parse
@@ -35,14 +42,141 @@ class CouchDbClient {
   String couchdbUsername
   String couchdbPassword
 
+  ViewWarmer viewWarmer
+
+  // building a view index may take minutes, which would exceed OkHttp's default read timeout of 10s
+  long warmViewReadTimeoutMillis = TimeUnit.MINUTES.toMillis(10)
+
+  private ConcurrencyLimitInterceptor concurrencyLimiter
+
+  FanOutExecutor fanOutExecutor
+
+  // lets fan-out operations cancel their calls at the deadline, as long as the OkHttpClient is derived from the default one
+  private final CallTracker callTracker = new CallTracker()
+
+  // OkHttp's default connection pool keeps up to 5 idle connections
+  private int maxIdleConnections = 5
+
   CouchDbClient(Json json) {
-    this.client = new OkHttpClient()
+    this.client = new OkHttpClient.Builder()
+        .eventListenerFactory(callTracker)
+        .build()
     this.json = json
     this.tlsEnabled = false
     this.couchdbHost = "127.0.0.1"
     this.couchdbPort = 5984
   }
 
+  /**
+   * Limits the number of requests in flight per operation class, adapting the limits to the observed latency.
+   * Requests exceeding the limit fail with a {@link de.gesellix.couchdb.limit.ConcurrencyLimitExceededException}.
+   */
+  void enableConcurrencyLimiter(ConcurrencyLimitInterceptor concurrencyLimiter = new ConcurrencyLimitInterceptor()) {
+    if (this.concurrencyLimiter != null) {
+      throw new IllegalStateException("concurrency limiter already enabled")
+    }
+    this.concurrencyLimiter = concurrencyLimiter
+    this.client = client.newBuilder()
+        .addInterceptor(concurrencyLimiter)
+        .build()
+  }
+
+  ConcurrencyLimitInterceptor getConcurrencyLimiter() {
+    return concurrencyLimiter
+  }
+
+  /**
+   * Prepares the client to run up to maxConcurrency requests in parallel via fanOut.
+   * The connection pool keeps enough idle connections, so that parallel requests don't need to reconnect.
+   * Requests are executed synchronously on the fan-out threads, so OkHttp's Dispatcher limits don't apply.
+   * Instead, the {@link FanOutExecutor} bounds the requests in flight, and with them the threads
+   * which might pin a carrier thread while blocking inside OkHttp.
+   */
+  void enableFanOut(int maxConcurrency) {
+    this.fanOutExecutor = new FanOutExecutor(maxConcurrency, callTracker)
+    this.maxIdleConnections = maxConcurrency
+    this.client = client.newBuilder()
+        .connectionPool(new ConnectionPool(maxConcurrency, 5, TimeUnit.MINUTES))
+        .build()
+  }
+
+  /**
+   * Runs the operation for every input, e.g. for every database name, and collects results and failures.
+   * Uses virtual threads when available, see {@link FanOutExecutor}.
+   * Requests of this client which are still running at the deadline are cancelled.
+   */
+  def <T, R> FanOutResult<T, R> fanOut(Collection<T> inputs, long timeout, TimeUnit unit, FanOutExecutor.Operation<T, R> operation) {
+    FanOutExecutor executor = fanOutExecutor ?: new FanOutExecutor(maxIdleConnections, callTracker)
+    return executor.execute(inputs, timeout, unit, operation)
+  }
+
+  /**
+   * Prepares the client before it takes traffic: resolves the CouchDB host, opens the given number of
+   * pooled connections (including the TLS handshake), prepares the Json (de)serialization for the given types,
+   * and verifies the existence of the given design documents and those registered at the viewWarmer.
+   *
+   * @param connections the number of connections to open, or 0 to skip opening connections
+   * @param designDocIds design document ids per database
+   * @return a summary, including the idle connections and missing design documents as "db/designDocId"
+   */
+  Map warmUp(int connections = 4,
+             Collection<Type> types = [],
+             Map<String, Collection<String>> designDocIds = [:],
+             long timeout = 30, TimeUnit unit = TimeUnit.SECONDS) {
+    if (connections < 0) {
+      throw new IllegalArgumentException("connections must not be negative")
+    }
+    long start = System.currentTimeMillis()
+
+    List<InetAddress> addresses = client.dns().lookup(couchdbHost)
+    log.info("resolved {} to {}", couchdbHost, addresses)
+
+    if (connections > maxIdleConnections) {
+      maxIdleConnections = connections
+      client = client.newBuilder()
+          .connectionPool(new ConnectionPool(connections, 5, TimeUnit.MINUTES))
+          .build()
+    }
+    FanOutResult<Integer, Boolean> opened = new FanOutResult<>([:], [:])
+    if (connections > 0) {
+      // concurrent requests need their own connections, which are kept in the pool afterwards
+      CountDownLatch allStarted = new CountDownLatch(connections)
+      opened = new FanOutExecutor(connections, callTracker).execute((1..connections).toList(), timeout, unit, { Integer i ->
+        allStarted.countDown()
+        allStarted.await(timeout, unit)
+        return isUp()
+      } as FanOutExecutor.Operation)
+    }
+
+    List<Type> preparedTypes = [Map, List] + (types ?: [])
+    json.prepare(preparedTypes)
+
+    Set<List<String>> designDocs = new LinkedHashSet<>()
+    designDocIds?.each { String db, Collection<String> ids ->
+      ids.each { designDocs << [db, it.toString()] }
+    }
+    viewWarmer?.views?.each { ViewWarmer.View view ->
+      designDocs << [view.db, view.designDocId]
+    }
+    FanOutResult<List<String>, Boolean> verified = fanOut(designDocs, timeout, unit, { List<String> designDoc ->
+      return contains(designDoc[0], designDoc[1])
+    } as FanOutExecutor.Operation)
+    List<String> missingDesignDocs = (verified.results.findAll { !it.value }.keySet() + verified.failures.keySet())
+        .collect { "${it[0]}/${it[1]}".toString() }
+
+    Map summary = [
+        addresses        : addresses*.hostAddress,
+        connections      : client.connectionPool().idleConnectionCount(),
+        failedConnections: opened.results.count { !it.value } + opened.failures.size(),
+        types            : preparedTypes.size(),
+        designDocs       : designDocs.size(),
+        missingDesignDocs: missingDesignDocs,
+        durationMillis   : System.currentTimeMillis() - start
+    ]
+    log.info("warm-up finished: {}", summary)
+    return summary
+  }
+
   @PackageScope
   String getCurlCommandLine(String suffix) {
     String authorization = ""
@@ -101,6 +235,20 @@ class CouchDbClient {
     }
   }
 
+  boolean isUp() {
+    Request.Builder builder = new Request.Builder()
+        .url("${getBaseUrl()}/_up")
+        .get()
+    if (couchdbUsername && couchdbPassword) {
+      builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
+    }
+    Request request = builder.build()
+
+    Response response = client.newCall(request).execute()
+    response.close()
+    return response.successful
+  }
+
   def <R> R query(String db, String viewName, String key, boolean includeDocs = true) {
     String designDocId = "_design/${db.capitalize()}"
     return query(db, designDocId, viewName, key, includeDocs)
@@ -253,6 +401,22 @@ class CouchDbClient {
   <T extends RowReference<String>, R extends NonReducedViewQueryResponse<String, T>> R getAllDocs(
       Type R, String db, String startkey, String startkeyDocId,
       Integer limit = null, boolean includeDocs = true) {
+    return queryAllDocsPage(R, "/${db.toLowerCase()}", startkey, startkeyDocId, limit, includeDocs)
+  }
+
+  /**
+   * Pages through the /_all_docs of a single partition. The startkey needs to be
+   * a document id of the same partition, e.g. "tenant-a:doc-1".
+   */
+  <T extends RowReference<String>, R extends NonReducedViewQueryResponse<String, T>> R getPartitionAllDocs(
+      Type R, String db, String partition, String startkey, String startkeyDocId,
+      Integer limit = null, boolean includeDocs = true) {
+    return queryAllDocsPage(R, getPartitionPath(db, partition), startkey, startkeyDocId, limit, includeDocs)
+  }
+
+  private <R> R queryAllDocsPage(
+      Type R, String dbPath, String startkey, String startkeyDocId,
+      Integer limit, boolean includeDocs) {
     List<String> query = []
     if (includeDocs) {
       query.add("include_docs=${includeDocs}")
@@ -270,7 +434,7 @@ class CouchDbClient {
     String queryAsString = query.join("&")
 
     Request.Builder builder = new Request.Builder()
-        .url("${getBaseUrl()}/${db.toLowerCase()}" +
+        .url("${getBaseUrl()}${dbPath}" +
             "/_all_docs" +
             "?${queryAsString}")
         .get()
@@ -300,19 +464,66 @@ class CouchDbClient {
       Integer skip = null, Integer limit = null,
       boolean includeDocs = false, boolean includeDesignDoc = false,
       Object endkey = null, String endkeyDocId = null,
-      boolean doPost = false) {
+      boolean doPost = false,
+      String update = null, boolean stable = false,
+      Integer groupLevel = null) {
+    return queryViewPage(
+        R, "/${db.toLowerCase()}/${designDocId}/_view/${viewName}", reduce,
+        startkey, startkeyDocId,
+        skip, limit,
+        includeDocs, includeDesignDoc,
+        endkey, endkeyDocId,
+        doPost,
+        update, stable,
+        groupLevel)
+  }
+
+  /**
+   * Same as queryPage, but only consults the shard range of a single partition.
+   * The design document needs to be partitioned, which is the default in partitioned databases.
+   */
+  <R> R queryPartitionPage(
+      Type R, String db, String partition, String designDocId, String viewName, boolean reduce,
+      Object startkey, String startkeyDocId,
+      Integer skip = null, Integer limit = null,
+      boolean includeDocs = false, boolean includeDesignDoc = false,
+      Object endkey = null, String endkeyDocId = null,
+      boolean doPost = false,
+      String update = null, boolean stable = false,
+      Integer groupLevel = null) {
+    return queryViewPage(
+        R, "${getPartitionPath(db, partition)}/${designDocId}/_view/${viewName}", reduce,
+        startkey, startkeyDocId,
+        skip, limit,
+        includeDocs, includeDesignDoc,
+        endkey, endkeyDocId,
+        doPost,
+        update, stable,
+        groupLevel)
+  }
+
+  private <R> R queryViewPage(
+      Type R, String viewPath, boolean reduce,
+      Object startkey, String startkeyDocId,
+      Integer skip, Integer limit,
+      boolean includeDocs, boolean includeDesignDoc,
+      Object endkey, String endkeyDocId,
+      boolean doPost,
+      String update, boolean stable,
+      Integer groupLevel) {
 
     List<String> query = []
     query.add("reduce=${reduce}")
     if (reduce) {
-      query.add("group=true")
+      // group by the first n elements of array keys, or by the exact key
+      query.add(groupLevel != null ? "group_level=${groupLevel}" : "group=true")
     }
     if (!reduce && includeDocs) {
       query.add("include_docs=${includeDocs}")
     }
     Map postBody = [:]
-    if (startkey) {
-      // TODO allow non-String and non-Collection<String> instances for startkey
+    // keys may be falsy, like 0 or an empty string
+    if (startkey != null) {
       String encodedKey = urlEncode(json.encodeQueryValue(startkey))
       if (encodedKey.length() > MAX_QUERY_KEY_LENGTH) {
         doPost = true
@@ -325,8 +536,7 @@ class CouchDbClient {
       String docId = sanitizeDocId(startkeyDocId)
       query.add("startkey_docid=${docId}")
     }
-    if (endkey) {
-      // TODO allow non-String and non-Collection<String> instances for endkey
+    if (endkey != null) {
       String encodedKey = urlEncode(json.encodeQueryValue(endkey))
       if (encodedKey.length() > MAX_QUERY_KEY_LENGTH) {
         doPost = true
@@ -345,12 +555,17 @@ class CouchDbClient {
     if (limit != null) {
       query.add("limit=${limit}")
     }
+    // "lazy" or "false" avoid waiting for the view index to be updated
+    if (update) {
+      query.add("update=${update}")
+    }
+    if (stable) {
+      query.add("stable=${stable}")
+    }
     String queryAsString = query.join("&")
 
     Request.Builder builder = new Request.Builder()
-        .url("${getBaseUrl()}/${db.toLowerCase()}" +
-            "/${designDocId}" +
-            "/_view/${viewName}" +
+        .url("${getBaseUrl()}${viewPath}" +
             "?${queryAsString}")
     if (doPost) {
       String documentAsJson = json.encodeDocument(postBody)
@@ -381,6 +596,91 @@ class CouchDbClient {
     }
   }
 
+  /**
+   * Queries a reduced view for the key range from startkey to endkey, which may be null for an open range.
+   * Keys are sent in the request body, so that they may be of any type.
+   */
+  List<Map> queryReduced(
+      String db, String designDocId, String viewName,
+      Object startkey, Object endkey, boolean inclusiveEnd = true,
+      Integer groupLevel = null, boolean group = false) {
+    Map postBody = [reduce: true]
+    if (groupLevel != null) {
+      postBody['group_level'] = groupLevel
+    } else if (group) {
+      postBody['group'] = true
+    }
+    if (startkey != null) {
+      postBody['startkey'] = startkey
+    }
+    if (endkey != null) {
+      postBody['endkey'] = endkey
+      postBody['inclusive_end'] = inclusiveEnd
+    }
+
+    String documentAsJson = json.encodeDocument(postBody)
+    Request.Builder builder = new Request.Builder()
+        .url("${getBaseUrl()}/${db.toLowerCase()}" +
+            "/${designDocId}" +
+            "/_view/${viewName}")
+        .post(RequestBody.create(documentAsJson, parse("application/json")))
+    if (couchdbUsername && couchdbPassword) {
+      builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
+    }
+    Request request = builder.build()
+
+    Response response = client.newCall(request).execute()
+
+    if (!response.successful) {
+      if (response.body().contentLength() > 0) {
+        log.error("error querying view: {}/{}: {}", response.code(), response.message(), response.body().string())
+      } else {
+        log.error("error querying view: {}/{}", response.code(), response.message())
+      }
+      throw new IllegalStateException("could not query view")
+    } else {
+      Map result = json.consume(response.body().byteStream(), Map)
+      return result.rows as List<Map>
+    }
+  }
+
+  /**
+   * Splits the key range into sub-ranges at the given boundaries, queries them concurrently,
+   * and merges the partial results, see {@link ParallelReduce}.
+   * Use the {@link de.gesellix.couchdb.reduce.ReduceCombiners} for the built-in reduce functions.
+   * The boundaries need to be in ascending order of the view collation.
+   */
+  List<Map<String, Object>> queryReducedParallel(
+      String db, String designDocId, String viewName,
+      List<?> boundaries, ReduceCombiner combiner,
+      Integer groupLevel = null, boolean group = false,
+      long timeout = 60, TimeUnit unit = TimeUnit.SECONDS) {
+    FanOutExecutor executor = fanOutExecutor ?: new FanOutExecutor(maxIdleConnections, callTracker)
+    return new ParallelReduce(this, executor).query(
+        db, designDocId, viewName,
+        boundaries, groupLevel, group,
+        combiner,
+        timeout, unit)
+  }
+
+  /**
+   * Same as queryReducedParallel, but decodes the merged rows into the given type,
+   * e.g. a {@link de.gesellix.couchdb.moshi.MoshiReducedViewQueryResponse} as returned by queryPage with reduce=true.
+   */
+  <R> R queryReducedParallel(
+      Type R, String db, String designDocId, String viewName,
+      List<?> boundaries, ReduceCombiner combiner,
+      Integer groupLevel = null, boolean group = false,
+      long timeout = 60, TimeUnit unit = TimeUnit.SECONDS) {
+    List<Map<String, Object>> rows = queryReducedParallel(
+        db, designDocId, viewName,
+        boundaries, combiner,
+        groupLevel, group,
+        timeout, unit)
+    // the merged rows are small compared to the sub-range responses, so that re-encoding them is cheap
+    return json.decodeDocument(json.encodeDocument([rows: rows]), R)
+  }
+
   def create(String db, Map document) {
     if (document == null) {
       throw new IllegalArgumentException("document may not be null")
@@ -515,6 +815,8 @@ class CouchDbClient {
       }
     }
 
+    viewWarmer?.onBulkWrite(db)
+
     return result
   }
 
@@ -541,9 +843,9 @@ class CouchDbClient {
     }
   }
 
-  def createDb(String db) {
+  def createDb(String db, boolean partitioned = false) {
     Request.Builder builder = new Request.Builder()
-        .url("${getBaseUrl()}/${db.toLowerCase()}")
+        .url("${getBaseUrl()}/${db.toLowerCase()}${partitioned ? "?partitioned=true" : ""}")
         .put(RequestBody.create('', parse("application/json")))
     if (couchdbUsername && couchdbPassword) {
       builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
@@ -611,6 +913,7 @@ class CouchDbClient {
         ]
     ]
 
+    Map designDoc
     boolean designDocExists = contains(db, designDocId)
     if (designDocExists) {
       Map currentDesignDoc = get(db, designDocId)
@@ -618,9 +921,86 @@ class CouchDbClient {
       if (mergedDesignDoc != currentDesignDoc) {
         update(db, mergedDesignDoc)
       }
-      return get(db, designDocId)
+      designDoc = get(db, designDocId)
     } else {
-      return update(db, newDesignDoc)
+      designDoc = update(db, newDesignDoc)
+    }
+
+    if (viewWarmer) {
+      if (isPartitioned(db, designDoc)) {
+        viewWarmer.registerPartitioned(db, designDocId, viewName)
+      } else {
+        viewWarmer.register(db, designDocId, viewName)
+      }
+    }
+    return designDoc
+  }
+
+  /**
+   * Design documents of partitioned databases are partitioned, unless they opt out
+   * via <code>"options": {"partitioned": false}</code>.
+   */
+  boolean isPartitioned(String db, Map designDoc) {
+    if (designDoc?.options?.partitioned == false) {
+      return false
+    }
+    return getDbInfo(db)?.props?.partitioned == true
+  }
+
+  /**
+   * Triggers the index update of a view without fetching any rows, and waits for the index to be updated.
+   * Partitioned views need a partition, because they can't be queried globally.
+   * The request uses the warmViewReadTimeoutMillis, and bypasses an enabled concurrency limiter.
+   */
+  Map warmView(String db, String designDocId, String viewName, String partition = null) {
+    String dbPath = partition == null ? "/${db.toLowerCase()}" : getPartitionPath(db, partition)
+    Request.Builder builder = new Request.Builder()
+        .url("${getBaseUrl()}${dbPath}" +
+            "/${designDocId}" +
+            "/_view/${viewName}" +
+            "?reduce=false&limit=0")
+        .get()
+    builder = BackgroundRequest.tag(builder)
+    if (couchdbUsername && couchdbPassword) {
+      builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
+    }
+    Request request = builder.build()
+
+    OkHttpClient warmingClient = client.newBuilder()
+        .readTimeout(warmViewReadTimeoutMillis, TimeUnit.MILLISECONDS)
+        .build()
+    Response response = warmingClient.newCall(request).execute()
+
+    if (!response.successful) {
+      if (response.body().contentLength() > 0) {
+        log.error("error warming view: {}/{}: {}", response.code(), response.message(), response.body().string())
+      } else {
+        log.error("error warming view: {}/{}", response.code(), response.message())
+      }
+      throw new IllegalStateException("could not warm view")
+    } else {
+      Map result = json.consume(response.body().byteStream(), Map)
+      return result
+    }
+  }
+
+  List<Map> getActiveTasks() {
+    Request.Builder builder = new Request.Builder()
+        .url("${getBaseUrl()}/_active_tasks")
+        .get()
+    if (couchdbUsername && couchdbPassword) {
+      builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
+    }
+    Request request = builder.build()
+
+    Response response = client.newCall(request).execute()
+
+    if (!response.successful) {
+      log.error("error getting active tasks: {}/{}", response.code(), response.message())
+      throw new IllegalStateException("could not get active tasks")
+    } else {
+      List<Map> tasks = json.consume(response.body().byteStream(), List)
+      return tasks
     }
   }
 
@@ -668,6 +1048,63 @@ class CouchDbClient {
     }
   }
 
+  Map getPartitionInfo(String db, String partition) {
+    Request.Builder builder = new Request.Builder()
+        .url("${getBaseUrl()}${getPartitionPath(db, partition)}")
+        .get()
+    if (couchdbUsername && couchdbPassword) {
+      builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
+    }
+    Request request = builder.build()
+
+    Response response = client.newCall(request).execute()
+
+    if (!response.successful) {
+      log.error("error getting partition info({}/{}): {}/{}", db, partition, response.code(), response.message())
+      throw new IllegalStateException("could not get partition info for '${db}/${partition}'")
+    } else {
+      Map info = json.consume(response.body().byteStream(), Map)
+      return info
+    }
+  }
+
+  Map find(String db, Map query) {
+    return queryFind("/${db.toLowerCase()}", query)
+  }
+
+  Map findInPartition(String db, String partition, Map query) {
+    return queryFind(getPartitionPath(db, partition), query)
+  }
+
+  private Map queryFind(String dbPath, Map query) {
+    if (query == null) {
+      throw new IllegalArgumentException("query may not be null")
+    }
+
+    String queryAsJson = json.encodeDocument(query)
+    Request.Builder builder = new Request.Builder()
+        .url("${getBaseUrl()}${dbPath}/_find")
+        .post(RequestBody.create(queryAsJson, parse("application/json")))
+    if (couchdbUsername && couchdbPassword) {
+      builder = builder.header("Authorization", Credentials.basic(couchdbUsername, couchdbPassword))
+    }
+    Request request = builder.build()
+
+    Response response = client.newCall(request).execute()
+
+    if (!response.successful) {
+      if (response.body().contentLength() > 0) {
+        log.error("error querying _find: {}/{}: {}", response.code(), response.message(), response.body().string())
+      } else {
+        log.error("error querying _find: {}/{}", response.code(), response.message())
+      }
+      throw new IllegalStateException("could not query _find")
+    } else {
+      Map result = json.consume(response.body().byteStream(), Map)
+      return result
+    }
+  }
+
   <R> R get(String db, String docId) {
     docId = sanitizeDocId(docId)
     Request.Builder builder = new Request.Builder()
@@ -718,6 +1155,38 @@ class CouchDbClient {
     return mergedDoc
   }
 
+  String getPartitionPath(String db, String partition) {
+    validatePartition(partition)
+    return "/${db.toLowerCase()}/_partition/${urlEncode(partition)}"
+  }
+
+  /**
+   * Documents in partitioned databases need an id like "{partition}:{docid}".
+   */
+  static String partitionedDocId(String partition, String docId) {
+    validatePartition(partition)
+    if (!docId) {
+      throw new IllegalArgumentException("docId may not be empty")
+    }
+    return "${partition}:${docId}"
+  }
+
+  static String partitionOf(String partitionedDocId) {
+    if (!partitionedDocId || partitionedDocId.indexOf(':') <= 0) {
+      throw new IllegalArgumentException("not a partitioned document id: '${partitionedDocId}'")
+    }
+    return partitionedDocId.substring(0, partitionedDocId.indexOf(':'))
+  }
+
+  static void validatePartition(String partition) {
+    if (!partition) {
+      throw new IllegalArgumentException("partition may not be empty")
+    }
+    if (partition.startsWith('_') || partition.contains(':')) {
+      throw new IllegalArgumentException("invalid partition '${partition}', must neither start with '_' nor contain ':'")
+    }
+  }
+
   static String sanitizeDocId(String docId) {
     if (!docId.startsWith('_')) {
       docId = urlEncode(docId)
@@ -0,0 +1,187 @@
+package de.gesellix.couchdb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs an operation for many inputs, e.g. databases or document ids, with at most <code>maxConcurrency</code>
+ * operations at the same time and an overall deadline.
+ * <p>
+ * Uses virtual threads when running on Java 21 or later, and a fixed pool of platform threads otherwise.
+ * Not more than <code>maxConcurrency</code> threads run an operation at the same time, which also bounds
+ * the number of carrier threads a virtual thread can pin while blocking inside OkHttp.
+ * <p>
+ * Operations still running at the deadline are interrupted. With a {@link CallTracker}, their OkHttp calls
+ * are cancelled as well, because blocking socket reads ignore interrupts.
+ * {@link #execute} waits up to {@link #TERMINATION_TIMEOUT_MILLIS} for cancelled operations to finish,
+ * operations ignoring both interrupts and cancelled calls may keep running in the background afterwards.
+ */
+public class FanOutExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(FanOutExecutor.class);
+
+  private static final Method newVirtualThreadPerTaskExecutor = findVirtualThreadPerTaskExecutor();
+
+  static final long TERMINATION_TIMEOUT_MILLIS = 5000;
+
+  private final int maxConcurrency;
+  private final Supplier<ExecutorService> executorFactory;
+  private final CallTracker callTracker;
+
+  public FanOutExecutor(int maxConcurrency) {
+    this(maxConcurrency, (CallTracker) null);
+  }
+
+  /**
+   * @param callTracker records the calls of each operation to cancel them at the deadline, or null
+   */
+  public FanOutExecutor(int maxConcurrency, CallTracker callTracker) {
+    this(maxConcurrency, defaultExecutorFactory(maxConcurrency), callTracker);
+  }
+
+  public FanOutExecutor(int maxConcurrency, Supplier<ExecutorService> executorFactory) {
+    this(maxConcurrency, executorFactory, null);
+  }
+
+  public FanOutExecutor(int maxConcurrency, Supplier<ExecutorService> executorFactory, CallTracker callTracker) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be at least 1");
+    }
+    this.maxConcurrency = maxConcurrency;
+    this.executorFactory = executorFactory;
+    this.callTracker = callTracker;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public static boolean isVirtualThreadsAvailable() {
+    return newVirtualThreadPerTaskExecutor != null;
+  }
+
+  private static Method findVirtualThreadPerTaskExecutor() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  static Supplier<ExecutorService> defaultExecutorFactory(int maxConcurrency) {
+    if (isVirtualThreadsAvailable()) {
+      return () -> {
+        try {
+          return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+          throw new IllegalStateException("could not create a virtual thread executor", e);
+        }
+      };
+    }
+    return () -> Executors.newFixedThreadPool(maxConcurrency, new DaemonThreadFactory("couchdb-fan-out"));
+  }
+
+  /**
+   * Applies the operation to each distinct input. Operations still running at the deadline are cancelled,
+   * and reported as failures together with operations which threw an exception.
+   */
+  public <T, R> FanOutResult<T, R> execute(Collection<T> inputs, long timeout, TimeUnit unit, Operation<T, R> operation) {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    // bounds the number of concurrent requests, even with an unbounded number of virtual threads
+    Semaphore permits = new Semaphore(maxConcurrency);
+
+    Map<T, Future<R>> futures = new LinkedHashMap<>();
+    Map<T, CallTracker.Scope> scopes = new LinkedHashMap<>();
+    Map<T, R> results = new LinkedHashMap<>();
+    Map<T, Throwable> failures = new LinkedHashMap<>();
+
+    ExecutorService executor = executorFactory.get();
+    try {
+      for (T input : new LinkedHashSet<>(inputs)) {
+        CallTracker.Scope scope = new CallTracker.Scope();
+        scopes.put(input, scope);
+        futures.put(input, executor.submit(() -> {
+          permits.acquire();
+          try {
+            return callTracker != null
+                ? callTracker.call(scope, () -> operation.apply(input))
+                : operation.apply(input);
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+
+      boolean interrupted = false;
+      for (Map.Entry<T, Future<R>> entry : futures.entrySet()) {
+        Future<R> future = entry.getValue();
+        if (interrupted) {
+          cancel(future, scopes.get(entry.getKey()));
+          failures.put(entry.getKey(), new CancellationException("fan-out has been interrupted"));
+          continue;
+        }
+        try {
+          results.put(entry.getKey(), future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (ExecutionException e) {
+          failures.put(entry.getKey(), e.getCause());
+        } catch (TimeoutException e) {
+          cancel(future, scopes.get(entry.getKey()));
+          failures.put(entry.getKey(), new TimeoutException("deadline exceeded after " + unit.toMillis(timeout) + "ms"));
+        } catch (CancellationException e) {
+          failures.put(entry.getKey(), e);
+        } catch (InterruptedException e) {
+          interrupted = true;
+          cancel(future, scopes.get(entry.getKey()));
+          failures.put(entry.getKey(), new CancellationException("fan-out has been interrupted"));
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    } finally {
+      shutdown(executor);
+    }
+
+    if (!failures.isEmpty()) {
+      log.info("fan-out finished with {} results and {} failures", results.size(), failures.size());
+    }
+    return new FanOutResult<>(results, failures);
+  }
+
+  private void cancel(Future<?> future, CallTracker.Scope scope) {
+    future.cancel(true);
+    scope.cancel();
+  }
+
+  private void shutdown(ExecutorService executor) {
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(TERMINATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        log.warn("cancelled fan-out operations didn't finish within {}ms", TERMINATION_TIMEOUT_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @FunctionalInterface
+  public interface Operation<T, R> {
+
+    R apply(T input) throws Exception;
+  }
+}
@@ -0,0 +1,39 @@
+package de.gesellix.couchdb;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Results and failures of a {@link FanOutExecutor#execute}, keyed by the input, e.g. the database name.
+ * Inputs which didn't complete before the deadline are reported with a {@link java.util.concurrent.TimeoutException}.
+ */
+public class FanOutResult<T, R> {
+
+  private final Map<T, R> results;
+  private final Map<T, Throwable> failures;
+
+  public FanOutResult(Map<T, R> results, Map<T, Throwable> failures) {
+    this.results = Collections.unmodifiableMap(results);
+    this.failures = Collections.unmodifiableMap(failures);
+  }
+
+  public Map<T, R> getResults() {
+    return results;
+  }
+
+  public Map<T, Throwable> getFailures() {
+    return failures;
+  }
+
+  public boolean isComplete() {
+    return failures.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "FanOutResult{" +
+        "results=" + results.size() +
+        ", failures=" + failures +
+        '}';
+  }
+}
@@ -12,6 +12,20 @@ public interface Json {
 
   String encodeQueryValue(Collection<String> keys);
 
+  /**
+   * Encodes a view key of any JSON type, e.g. a number for paging numeric keys.
+   */
+  @SuppressWarnings("unchecked")
+  default String encodeQueryValue(Object key) {
+    if (key instanceof String) {
+      return encodeQueryValue((String) key);
+    }
+    if (key instanceof Collection) {
+      return encodeQueryValue((Collection<String>) key);
+    }
+    throw new UnsupportedOperationException("unsupported key type " + (key == null ? null : key.getClass().getName()));
+  }
+
   String encodeDocument(Map<Object, Object> document);
 
   <T> T decodeDocument(String json, Class<T> type) throws IOException;
@@ -21,4 +35,10 @@ public interface Json {
   <T> T consume(InputStream stream, Class<T> type) throws IOException;
 
   <T> T consume(InputStream stream, Type type) throws IOException;
+
+  /**
+   * Allows implementations to prepare the (de)serialization of the given types in advance.
+   */
+  default void prepare(Collection<Type> types) {
+  }
 }
@@ -0,0 +1,254 @@
+package de.gesellix.couchdb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps view indexes up to date by issuing cheap <code>limit=0</code> queries,
+ * so that the first "real" query doesn't have to wait for the index to be built.
+ * <p>
+ * Views are registered explicitly or automatically via {@link CouchDbClient#createOrUpdateView},
+ * when the warmer is set as {@link CouchDbClient#getViewWarmer()}.
+ * Warming is triggered after bulk writes, on demand, or on a schedule.
+ * At most <code>concurrency</code> views are warmed at the same time.
+ * <p>
+ * Partitioned views can only be queried per partition. They are warmed via the partitions
+ * registered with {@link #register(String, String, String, String)}, otherwise they are skipped
+ * and reported by {@link #getSkippedViews()}.
+ */
+public class ViewWarmer implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ViewWarmer.class);
+
+  private final CouchDbClient client;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService scheduler;
+
+  private final Set<View> views = ConcurrentHashMap.newKeySet();
+  private final Set<View> pending = ConcurrentHashMap.newKeySet();
+
+  private ScheduledFuture<?> scheduledWarming;
+
+  public ViewWarmer(CouchDbClient client, int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be at least 1");
+    }
+    this.client = client;
+    this.executor = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("couchdb-view-warmer"));
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("couchdb-view-warmer-scheduler"));
+  }
+
+  public void register(String db, String designDocId, String viewName) {
+    if (views.add(new View(db, designDocId, viewName))) {
+      log.debug("registered view {}/{}/{}", db, designDocId, viewName);
+    }
+  }
+
+  public void register(String db, String designDocId, Collection<String> viewNames) {
+    viewNames.forEach(viewName -> register(db, designDocId, viewName));
+  }
+
+  /**
+   * Registers a view of a partitioned design document, to be warmed via the given partition.
+   */
+  public void register(String db, String designDocId, String viewName, String partition) {
+    CouchDbClient.validatePartition(partition);
+    if (views.add(new View(db, designDocId, viewName, true, partition))) {
+      log.debug("registered view {}/{}/{} for partition {}", db, designDocId, viewName, partition);
+    }
+  }
+
+  /**
+   * Registers a view of a partitioned design document without a partition.
+   * Such a view is skipped while warming, because CouchDB rejects global queries on partitioned views.
+   */
+  public void registerPartitioned(String db, String designDocId, String viewName) {
+    if (views.add(new View(db, designDocId, viewName, true, null))) {
+      log.debug("registered partitioned view {}/{}/{}, which won't be warmed without a partition", db, designDocId, viewName);
+    }
+  }
+
+  public Set<View> getViews() {
+    return Collections.unmodifiableSet(views);
+  }
+
+  /**
+   * Partitioned views without a partition to warm them.
+   */
+  public Set<View> getSkippedViews() {
+    return Collections.unmodifiableSet(views.stream()
+        .filter(View::isSkipped)
+        .collect(Collectors.toSet()));
+  }
+
+  /**
+   * Called by the {@link CouchDbClient} after a successful bulk update.
+   */
+  public void onBulkWrite(String db) {
+    warm(db);
+  }
+
+  /**
+   * Asynchronously warms all registered views of the given database.
+   */
+  public List<Future<?>> warm(String db) {
+    return warmViews(views.stream()
+        .filter(view -> view.getDb().equalsIgnoreCase(db))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Asynchronously warms all registered views.
+   */
+  public List<Future<?>> warmAll() {
+    return warmViews(new ArrayList<>(views));
+  }
+
+  private List<Future<?>> warmViews(Collection<View> toWarm) {
+    List<Future<?>> futures = new ArrayList<>();
+    for (View view : toWarm) {
+      if (view.isSkipped()) {
+        log.debug("skipping partitioned view {} without a partition", view);
+        continue;
+      }
+      // a view with a pending warm-up will see the latest writes anyway
+      if (pending.add(view)) {
+        futures.add(executor.submit(() -> warmView(view)));
+      }
+    }
+    return futures;
+  }
+
+  private void warmView(View view) {
+    pending.remove(view);
+    long start = System.currentTimeMillis();
+    try {
+      client.warmView(view.getDb(), view.getDesignDocId(), view.getViewName(), view.getPartition());
+      log.debug("warmed view {} in {}ms", view, System.currentTimeMillis() - start);
+    } catch (Exception e) {
+      // the index update continues on the server, even when our request times out
+      log.warn("failed to warm view {} after {}ms: {}", view, System.currentTimeMillis() - start, e.getMessage());
+    }
+  }
+
+  /**
+   * Periodically warms all registered views. Replaces a previously configured schedule.
+   */
+  public synchronized void schedule(long period, TimeUnit unit) {
+    cancelSchedule();
+    scheduledWarming = scheduler.scheduleWithFixedDelay(this::warmAll, period, period, unit);
+  }
+
+  public synchronized void cancelSchedule() {
+    if (scheduledWarming != null) {
+      scheduledWarming.cancel(false);
+      scheduledWarming = null;
+    }
+  }
+
+  /**
+   * Returns the view indexer tasks as reported by <code>/_active_tasks</code>,
+   * e.g. with their <code>database</code>, <code>design_document</code> and <code>progress</code>.
+   */
+  public List<Map> getIndexingProgress() {
+    return client.getActiveTasks().stream()
+        .filter(task -> "indexer".equals(task.get("type")))
+        .collect(Collectors.toList());
+  }
+
+  public boolean isIndexing() {
+    return !getIndexingProgress().isEmpty();
+  }
+
+  @Override
+  public void close() {
+    cancelSchedule();
+    scheduler.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  public static class View {
+
+    private final String db;
+    private final String designDocId;
+    private final String viewName;
+    private final boolean partitioned;
+    private final String partition;
+
+    public View(String db, String designDocId, String viewName) {
+      this(db, designDocId, viewName, false, null);
+    }
+
+    public View(String db, String designDocId, String viewName, boolean partitioned, String partition) {
+      this.db = db;
+      this.designDocId = designDocId;
+      this.viewName = viewName;
+      this.partitioned = partitioned;
+      this.partition = partition;
+    }
+
+    public String getDb() {
+      return db;
+    }
+
+    public String getDesignDocId() {
+      return designDocId;
+    }
+
+    public String getViewName() {
+      return viewName;
+    }
+
+    public boolean isPartitioned() {
+      return partitioned;
+    }
+
+    /**
+     * The partition to query a partitioned view with, or null.
+     */
+    public String getPartition() {
+      return partition;
+    }
+
+    boolean isSkipped() {
+      return partitioned && partition == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      View view = (View) o;
+      return partitioned == view.partitioned
+          && Objects.equals(db, view.db) && Objects.equals(designDocId, view.designDocId) && Objects.equals(viewName, view.viewName)
+          && Objects.equals(partition, view.partition);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(db, designDocId, viewName, partitioned, partition);
+    }
+
+    @Override
+    public String toString() {
+      return db + (partition != null ? "/_partition/" + partition : "") + "/" + designDocId + "/_view/" + viewName;
+    }
+  }
+}
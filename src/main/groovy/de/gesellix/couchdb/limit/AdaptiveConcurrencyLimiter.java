@@ -0,0 +1,185 @@
+package de.gesellix.couchdb.limit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests in flight with an AIMD (additive increase, multiplicative decrease) algorithm.
+ * <p>
+ * The limit grows by one when a request completes below the latency threshold while the limit is actually used,
+ * and it shrinks by the backoff ratio when a request exceeds the latency threshold or the server signals overload.
+ * <p>
+ * Callers exceeding the limit wait for at most <code>maxWaitMillis</code>, or fail fast when set to 0.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final long maxWaitNanos;
+  private final int maxQueueDepth;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition permitAvailable = lock.newCondition();
+
+  private double limit;
+  private int inFlight;
+  private int queueDepth;
+
+  public AdaptiveConcurrencyLimiter(
+      String name,
+      int initialLimit, int minLimit, int maxLimit,
+      long latencyThresholdMillis,
+      long maxWaitMillis, int maxQueueDepth) {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+    }
+    this.name = name;
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    this.maxQueueDepth = maxQueueDepth;
+  }
+
+  /**
+   * Blocks until a permit is available, or fails after <code>maxWaitMillis</code>.
+   * Every acquired permit needs to be released via {@link #onSuccess(long)}, {@link #onOverload()}, or {@link #onIgnore()}.
+   */
+  public void acquire() throws ConcurrencyLimitExceededException, InterruptedException {
+    lock.lock();
+    try {
+      if (inFlight < getLimit()) {
+        inFlight++;
+        return;
+      }
+      if (maxWaitNanos <= 0 || queueDepth >= maxQueueDepth) {
+        throw new ConcurrencyLimitExceededException(String.format("concurrency limit reached for %s: limit(%d), inFlight(%d), queueDepth(%d)",
+            name, getLimit(), inFlight, queueDepth));
+      }
+      queueDepth++;
+      try {
+        long remainingNanos = maxWaitNanos;
+        while (inFlight >= getLimit()) {
+          if (remainingNanos <= 0) {
+            throw new ConcurrencyLimitExceededException(String.format("timed out waiting for a permit for %s after %dms: limit(%d), inFlight(%d)",
+                name, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos), getLimit(), inFlight));
+          }
+          remainingNanos = permitAvailable.awaitNanos(remainingNanos);
+        }
+        inFlight++;
+      } finally {
+        queueDepth--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases a permit of a request which completed after <code>latencyNanos</code>.
+   */
+  public void onSuccess(long latencyNanos) {
+    lock.lock();
+    try {
+      if (latencyNanos > latencyThresholdNanos) {
+        decreaseLimit();
+      } else if (inFlight * 2 >= limit) {
+        // only grow the limit when it's actually being used
+        limit = Math.min(maxLimit, limit + 1);
+      }
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases a permit of a request which failed due to server overload, e.g. with a 429 or 503 response.
+   */
+  public void onOverload() {
+    lock.lock();
+    try {
+      decreaseLimit();
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases a permit without adjusting the limit.
+   */
+  public void onIgnore() {
+    lock.lock();
+    try {
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void decreaseLimit() {
+    double previous = limit;
+    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    if ((int) previous != (int) limit) {
+      log.debug("decreased concurrency limit for {} from {} to {}", name, (int) previous, (int) limit);
+    }
+  }
+
+  private void release() {
+    inFlight--;
+    permitAvailable.signalAll();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return queueDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveConcurrencyLimiter{" +
+        "name='" + name + '\'' +
+        ", limit=" + getLimit() +
+        ", inFlight=" + getInFlight() +
+        ", queueDepth=" + getQueueDepth() +
+        '}';
+  }
+}
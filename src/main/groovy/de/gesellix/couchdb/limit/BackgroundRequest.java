@@ -0,0 +1,24 @@
+package de.gesellix.couchdb.limit;
+
+import okhttp3.Request;
+
+/**
+ * Tags requests which run in the background, like view warming, and which are bounded elsewhere.
+ * The {@link ConcurrencyLimitInterceptor} neither limits them nor uses them as latency or overload signals,
+ * so that long-running background requests don't reduce the limits of user-facing requests.
+ */
+public final class BackgroundRequest {
+
+  public static final BackgroundRequest TAG = new BackgroundRequest();
+
+  private BackgroundRequest() {
+  }
+
+  public static Request.Builder tag(Request.Builder builder) {
+    return builder.tag(BackgroundRequest.class, TAG);
+  }
+
+  public static boolean isBackground(Request request) {
+    return request.tag(BackgroundRequest.class) != null;
+  }
+}
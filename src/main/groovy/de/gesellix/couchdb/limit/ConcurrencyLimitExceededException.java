@@ -0,0 +1,15 @@
+package de.gesellix.couchdb.limit;
+
+import java.io.IOException;
+
+/**
+ * Signals that a request has been rejected on the client side,
+ * because too many requests of the same {@link OperationClass} are in flight.
+ * Extends IOException, so that it's handled like any other failed call.
+ */
+public class ConcurrencyLimitExceededException extends IOException {
+
+  public ConcurrencyLimitExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,197 @@
+package de.gesellix.couchdb.limit;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies an {@link AdaptiveConcurrencyLimiter} per {@link OperationClass} to every request.
+ * Responses with status 429 or 503 and failed calls are treated as overload signals.
+ * <p>
+ * For successful responses, a permit is held until the response body has been read completely, closed,
+ * or failed to be read, so that the measured latency includes the transfer of the body.
+ * Callers must close the body, as with any OkHttp response.
+ * Error responses and responses without a body release their permit immediately.
+ * Requests tagged as {@link BackgroundRequest} bypass the limiters.
+ */
+public class ConcurrencyLimitInterceptor implements Interceptor {
+
+  private final Map<OperationClass, AdaptiveConcurrencyLimiter> limiters;
+
+  public ConcurrencyLimitInterceptor() {
+    this(defaultLimiters());
+  }
+
+  public ConcurrencyLimitInterceptor(Map<OperationClass, AdaptiveConcurrencyLimiter> limiters) {
+    for (OperationClass operationClass : OperationClass.values()) {
+      if (!limiters.containsKey(operationClass)) {
+        throw new IllegalArgumentException("missing limiter for " + operationClass);
+      }
+    }
+    this.limiters = Collections.unmodifiableMap(new EnumMap<>(limiters));
+  }
+
+  public static Map<OperationClass, AdaptiveConcurrencyLimiter> defaultLimiters() {
+    Map<OperationClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(OperationClass.class);
+    limiters.put(OperationClass.READ, new AdaptiveConcurrencyLimiter(OperationClass.READ.name(), 20, 2, 200, 1000, 1000, 1000));
+    limiters.put(OperationClass.VIEW_QUERY, new AdaptiveConcurrencyLimiter(OperationClass.VIEW_QUERY.name(), 10, 1, 100, 5000, 1000, 1000));
+    limiters.put(OperationClass.BULK_WRITE, new AdaptiveConcurrencyLimiter(OperationClass.BULK_WRITE.name(), 4, 1, 20, 10000, 5000, 100));
+    limiters.put(OperationClass.WRITE, new AdaptiveConcurrencyLimiter(OperationClass.WRITE.name(), 10, 1, 100, 2000, 1000, 1000));
+    return limiters;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    if (BackgroundRequest.isBackground(chain.request())) {
+      return chain.proceed(chain.request());
+    }
+    AdaptiveConcurrencyLimiter limiter = limiters.get(OperationClass.of(chain.request()));
+    try {
+      limiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for a permit for " + limiter.getName());
+    }
+
+    long start = System.nanoTime();
+    Response response;
+    try {
+      response = chain.proceed(chain.request());
+    } catch (IOException | RuntimeException e) {
+      limiter.onOverload();
+      throw e;
+    }
+    Permit permit = new Permit(limiter, start);
+    if (response.code() == 429 || response.code() == 503) {
+      permit.overload();
+      return response;
+    }
+    if (!response.isSuccessful()) {
+      permit.ignore();
+      return response;
+    }
+    ResponseBody body = response.body();
+    if (body == null || body.contentLength() == 0 || "HEAD".equals(response.request().method())) {
+      permit.success();
+      return response;
+    }
+    return response.newBuilder()
+        .body(new PermitReleasingResponseBody(body, permit))
+        .build();
+  }
+
+  public Map<OperationClass, AdaptiveConcurrencyLimiter> getLimiters() {
+    return limiters;
+  }
+
+  /**
+   * Current limit, requests in flight, and queue depth per operation class.
+   */
+  public Map<OperationClass, Map<String, Integer>> getStats() {
+    Map<OperationClass, Map<String, Integer>> stats = new EnumMap<>(OperationClass.class);
+    limiters.forEach((operationClass, limiter) -> {
+      Map<String, Integer> limiterStats = new LinkedHashMap<>();
+      limiterStats.put("limit", limiter.getLimit());
+      limiterStats.put("inFlight", limiter.getInFlight());
+      limiterStats.put("queueDepth", limiter.getQueueDepth());
+      stats.put(operationClass, limiterStats);
+    });
+    return stats;
+  }
+
+  /**
+   * Releases a permit of the limiter exactly once.
+   */
+  static class Permit {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final long start;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Permit(AdaptiveConcurrencyLimiter limiter, long start) {
+      this.limiter = limiter;
+      this.start = start;
+    }
+
+    void success() {
+      if (released.compareAndSet(false, true)) {
+        limiter.onSuccess(System.nanoTime() - start);
+      }
+    }
+
+    void overload() {
+      if (released.compareAndSet(false, true)) {
+        limiter.onOverload();
+      }
+    }
+
+    void ignore() {
+      if (released.compareAndSet(false, true)) {
+        limiter.onIgnore();
+      }
+    }
+  }
+
+  static class PermitReleasingResponseBody extends ResponseBody {
+
+    private final ResponseBody delegate;
+    private final BufferedSource source;
+
+    PermitReleasingResponseBody(ResponseBody delegate, Permit permit) {
+      this.delegate = delegate;
+      this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+          long read;
+          try {
+            read = super.read(sink, byteCount);
+          } catch (IOException | RuntimeException e) {
+            permit.overload();
+            throw e;
+          }
+          if (read == -1) {
+            permit.success();
+          }
+          return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            permit.success();
+          }
+        }
+      });
+    }
+
+    @Override
+    public MediaType contentType() {
+      return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+      return delegate.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+      return source;
+    }
+  }
+}
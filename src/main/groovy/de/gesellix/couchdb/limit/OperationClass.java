@@ -0,0 +1,40 @@
+package de.gesellix.couchdb.limit;
+
+import okhttp3.Request;
+
+public enum OperationClass {
+
+  /**
+   * Single document or database reads, like GET or HEAD requests.
+   */
+  READ,
+
+  /**
+   * Queries on views, /_all_docs, or /_find.
+   */
+  VIEW_QUERY,
+
+  /**
+   * Requests to /_bulk_docs.
+   */
+  BULK_WRITE,
+
+  /**
+   * Any other request, like creating, updating, or deleting single documents.
+   */
+  WRITE;
+
+  public static OperationClass of(Request request) {
+    String path = request.url().encodedPath();
+    if (path.endsWith("/_bulk_docs")) {
+      return BULK_WRITE;
+    }
+    if (path.contains("/_view/") || path.endsWith("/_all_docs") || path.endsWith("/_find")) {
+      return VIEW_QUERY;
+    }
+    if ("GET".equals(request.method()) || "HEAD".equals(request.method())) {
+      return READ;
+    }
+    return WRITE;
+  }
+}
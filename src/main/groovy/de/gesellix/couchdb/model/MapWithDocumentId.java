@@ -1,16 +1,78 @@
 package de.gesellix.couchdb.model;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
-public class MapWithDocumentId<V> extends HashMap<String, V> implements DocumentId {
+/**
+ * Wraps the delegate instead of copying it, so that decoded documents aren't copied once more.
+ */
+public class MapWithDocumentId<V> extends AbstractMap<String, V> implements DocumentId {
+
+  private final Map<String, V> delegate;
 
   public MapWithDocumentId(Map<String, V> delegate) {
-    super(delegate);
+    this.delegate = delegate;
   }
 
   @Override
   public String getId() {
     return (String) get("_id");
   }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return delegate.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return delegate.containsValue(value);
+  }
+
+  @Override
+  public V get(Object key) {
+    return delegate.get(key);
+  }
+
+  @Override
+  public V put(String key, V value) {
+    return delegate.put(key, value);
+  }
+
+  @Override
+  public V remove(Object key) {
+    return delegate.remove(key);
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends V> m) {
+    delegate.putAll(m);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return delegate.keySet();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return delegate.values();
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    return delegate.entrySet();
+  }
 }
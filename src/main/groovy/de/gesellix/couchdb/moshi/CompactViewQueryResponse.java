@@ -0,0 +1,263 @@
+package de.gesellix.couchdb.moshi;
+
+import de.gesellix.couchdb.model.NonReducedViewQueryResponse;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A memory efficient alternative to the {@link MoshiViewQueryResponse} for large non-reduced view results.
+ * <p>
+ * Ids, keys and values are stored in columns instead of one object per row.
+ * Numeric keys and values are stored in primitive arrays, as long as every row has a numeric key or value.
+ * Numeric keys are only stored in a primitive array for the key types Object, Number and Double.
+ * Repeated strings in keys are shared during decoding.
+ * Rows are created on access, and documents (include_docs=true) are not supported.
+ * <p>
+ * Decoding requires the {@link CompactViewQueryResponseJsonAdapterFactory}, which is registered by the {@link MoshiJson}.
+ */
+public class CompactViewQueryResponse<KeyType> implements NonReducedViewQueryResponse<KeyType, CompactViewQueryResponseRow<KeyType>> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Integer offset;
+  private Integer totalRows;
+  private Object updateSeq;
+
+  private int size;
+  private String[] ids = new String[INITIAL_CAPACITY];
+  // either numericKeys or keys is in use
+  private double[] numericKeys = new double[INITIAL_CAPACITY];
+  private Object[] keys;
+  // either numericValues or values is in use
+  private double[] numericValues = new double[INITIAL_CAPACITY];
+  private Object[] values;
+
+  private final Rows rows = new Rows();
+
+  @Override
+  public Integer getOffset() {
+    return offset;
+  }
+
+  public void setOffset(Integer offset) {
+    this.offset = offset;
+  }
+
+  @Override
+  public Integer getTotalRows() {
+    return totalRows;
+  }
+
+  public void setTotalRows(Integer totalRows) {
+    this.totalRows = totalRows;
+  }
+
+  public Object getUpdateSeq() {
+    return updateSeq;
+  }
+
+  public void setUpdateSeq(Object updateSeq) {
+    this.updateSeq = updateSeq;
+  }
+
+  /**
+   * A view on the columns. Removing rows is supported, e.g. for paging.
+   */
+  @Override
+  public List<CompactViewQueryResponseRow<KeyType>> getRows() {
+    return rows;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getId(int index) {
+    checkIndex(index);
+    return ids[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  public KeyType getKey(int index) {
+    checkIndex(index);
+    return (KeyType) (keys == null ? (Object) numericKeys[index] : keys[index]);
+  }
+
+  public boolean hasNumericKeys() {
+    return keys == null;
+  }
+
+  public double getNumericKey(int index) {
+    checkIndex(index);
+    if (keys != null) {
+      throw new IllegalStateException("keys are not numeric");
+    }
+    return numericKeys[index];
+  }
+
+  public Object getValue(int index) {
+    checkIndex(index);
+    return values == null ? (Object) numericValues[index] : values[index];
+  }
+
+  public boolean hasNumericValues() {
+    return values == null;
+  }
+
+  public double getNumericValue(int index) {
+    checkIndex(index);
+    if (values != null) {
+      throw new IllegalStateException("values are not numeric");
+    }
+    return numericValues[index];
+  }
+
+  public void addRow(String id, Object key, Object value) {
+    ensureCapacity(size + 1);
+    ids[size] = id;
+
+    if (keys == null && !(key instanceof Number)) {
+      keys = box(numericKeys, ids.length);
+      numericKeys = null;
+    }
+    if (keys == null) {
+      numericKeys[size] = ((Number) key).doubleValue();
+    } else {
+      keys[size] = key;
+    }
+
+    if (values == null && !(value instanceof Number)) {
+      values = box(numericValues, ids.length);
+      numericValues = null;
+    }
+    if (values == null) {
+      numericValues[size] = ((Number) value).doubleValue();
+    } else {
+      values[size] = value;
+    }
+
+    size++;
+  }
+
+  /**
+   * Stores keys as objects, even when they are numeric. Must be called before adding rows.
+   */
+  void useObjectKeys() {
+    if (keys == null) {
+      keys = box(numericKeys, ids.length);
+      numericKeys = null;
+    }
+  }
+
+  private Object[] box(double[] numeric, int capacity) {
+    Object[] boxed = new Object[capacity];
+    for (int i = 0; i < size; i++) {
+      boxed[i] = numeric[i];
+    }
+    return boxed;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= ids.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+    ids = Arrays.copyOf(ids, newCapacity);
+    if (keys == null) {
+      numericKeys = Arrays.copyOf(numericKeys, newCapacity);
+    } else {
+      keys = Arrays.copyOf(keys, newCapacity);
+    }
+    if (values == null) {
+      numericValues = Arrays.copyOf(numericValues, newCapacity);
+    } else {
+      values = Arrays.copyOf(values, newCapacity);
+    }
+  }
+
+  /**
+   * Releases unused capacity after decoding.
+   */
+  void trimToSize() {
+    if (size == ids.length) {
+      return;
+    }
+    ids = Arrays.copyOf(ids, size);
+    if (keys == null) {
+      numericKeys = Arrays.copyOf(numericKeys, size);
+    } else {
+      keys = Arrays.copyOf(keys, size);
+    }
+    if (values == null) {
+      numericValues = Arrays.copyOf(numericValues, size);
+    } else {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  private CompactViewQueryResponseRow<KeyType> removeRow(int index) {
+    CompactViewQueryResponseRow<KeyType> removed = new CompactViewQueryResponseRow<>(getId(index), getKey(index), getValue(index));
+    int moved = size - index - 1;
+    if (moved > 0) {
+      System.arraycopy(ids, index + 1, ids, index, moved);
+      if (keys == null) {
+        System.arraycopy(numericKeys, index + 1, numericKeys, index, moved);
+      } else {
+        System.arraycopy(keys, index + 1, keys, index, moved);
+      }
+      if (values == null) {
+        System.arraycopy(numericValues, index + 1, numericValues, index, moved);
+      } else {
+        System.arraycopy(values, index + 1, values, index, moved);
+      }
+    }
+    size--;
+    ids[size] = null;
+    if (keys != null) {
+      keys[size] = null;
+    }
+    if (values != null) {
+      values[size] = null;
+    }
+    return removed;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+    }
+  }
+
+  private class Rows extends AbstractList<CompactViewQueryResponseRow<KeyType>> {
+
+    @Override
+    public CompactViewQueryResponseRow<KeyType> get(int index) {
+      return new CompactViewQueryResponseRow<>(getId(index), getKey(index), getValue(index));
+    }
+
+    @Override
+    public CompactViewQueryResponseRow<KeyType> remove(int index) {
+      modCount++;
+      return removeRow(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CompactViewQueryResponse{" +
+        "offset=" + offset +
+        ", totalRows=" + totalRows +
+        ", rows=" + size +
+        ", numericKeys=" + hasNumericKeys() +
+        ", numericValues=" + hasNumericValues() +
+        ", updateSeq=" + updateSeq +
+        '}';
+  }
+}
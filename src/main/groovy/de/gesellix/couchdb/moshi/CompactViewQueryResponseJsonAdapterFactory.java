@@ -0,0 +1,219 @@
+package de.gesellix.couchdb.moshi;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes a {@link CompactViewQueryResponse} according to its declared <code>KeyType</code>:
+ * keys of type Object, Number or Double may be stored in a primitive column,
+ * keys of other types are decoded by their Moshi adapter, e.g. Integer, String or List&lt;String&gt;.
+ * Keys not matching the declared type fail with a {@link JsonDataException}.
+ */
+public class CompactViewQueryResponseJsonAdapterFactory implements JsonAdapter.Factory {
+
+  @Override
+  public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+    if (!annotations.isEmpty() || Types.getRawType(type) != CompactViewQueryResponse.class) {
+      return null;
+    }
+    Type keyType = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+    Class<?> rawKeyType = Types.getRawType(keyType);
+    JsonAdapter<?> keyAdapter = CompactViewQueryResponseJsonAdapter.isDynamic(rawKeyType) ? null : moshi.adapter(keyType);
+    return new CompactViewQueryResponseJsonAdapter(moshi.adapter(Object.class), rawKeyType, keyAdapter).nullSafe();
+  }
+
+  static class CompactViewQueryResponseJsonAdapter extends JsonAdapter<CompactViewQueryResponse<Object>> {
+
+    private static final JsonReader.Options RESPONSE_OPTIONS = JsonReader.Options.of("offset", "total_rows", "update_seq", "rows");
+    private static final JsonReader.Options ROW_OPTIONS = JsonReader.Options.of("id", "key", "value");
+
+    private final JsonAdapter<Object> objectAdapter;
+    private final Class<?> rawKeyType;
+    // decodes keys of a declared type, or null for keys of type Object or Number
+    private final JsonAdapter<?> keyAdapter;
+
+    CompactViewQueryResponseJsonAdapter(JsonAdapter<Object> objectAdapter, Class<?> rawKeyType, JsonAdapter<?> keyAdapter) {
+      this.objectAdapter = objectAdapter;
+      this.rawKeyType = rawKeyType;
+      this.keyAdapter = keyAdapter;
+    }
+
+    /**
+     * Keys of these types are decoded without an adapter, and numeric keys may be stored in a primitive column.
+     */
+    static boolean isDynamic(Class<?> rawKeyType) {
+      return rawKeyType == Object.class || rawKeyType == Number.class || rawKeyType == Double.class;
+    }
+
+    @Override
+    public CompactViewQueryResponse<Object> fromJson(JsonReader reader) throws IOException {
+      CompactViewQueryResponse<Object> response = new CompactViewQueryResponse<>();
+      if (keyAdapter != null) {
+        // e.g. Integer keys must not be returned as Double
+        response.useObjectKeys();
+      }
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(RESPONSE_OPTIONS)) {
+          case 0:
+            response.setOffset(readInteger(reader));
+            break;
+          case 1:
+            response.setTotalRows(readInteger(reader));
+            break;
+          case 2:
+            response.setUpdateSeq(reader.readJsonValue());
+            break;
+          case 3:
+            readRows(reader, response);
+            break;
+          default:
+            reader.skipName();
+            reader.skipValue();
+        }
+      }
+      reader.endObject();
+      response.trimToSize();
+      return response;
+    }
+
+    private Integer readInteger(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonReader.Token.NULL) {
+        return reader.nextNull();
+      }
+      return reader.nextInt();
+    }
+
+    private void readRows(JsonReader reader, CompactViewQueryResponse<Object> response) throws IOException {
+      // shares equal strings across all keys of this response
+      Map<String, String> strings = new HashMap<>();
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String id = null;
+        Object key = null;
+        Object value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+          switch (reader.selectName(ROW_OPTIONS)) {
+            case 0:
+              id = reader.peek() == JsonReader.Token.NULL ? reader.<String>nextNull() : reader.nextString();
+              break;
+            case 1:
+              key = readKey(reader, strings);
+              break;
+            case 2:
+              value = readValue(reader);
+              break;
+            default:
+              // e.g. "doc", which isn't supported by the compact format
+              reader.skipName();
+              reader.skipValue();
+          }
+        }
+        reader.endObject();
+        response.addRow(id, key, value);
+      }
+      reader.endArray();
+    }
+
+    private Object readKey(JsonReader reader, Map<String, String> strings) throws IOException {
+      JsonReader.Token token = reader.peek();
+      if (keyAdapter != null) {
+        // Moshi would silently convert numbers to strings
+        if (rawKeyType == String.class && token != JsonReader.Token.STRING && token != JsonReader.Token.NULL) {
+          throw unexpectedKey("a String", token, reader);
+        }
+        return intern(keyAdapter.fromJson(reader), strings);
+      }
+      switch (token) {
+        case NUMBER:
+          return reader.nextDouble();
+        case NULL:
+          return reader.nextNull();
+        default:
+          if (rawKeyType != Object.class) {
+            throw unexpectedKey("a number", token, reader);
+          }
+          return token == JsonReader.Token.STRING
+              ? intern(reader.nextString(), strings)
+              : intern(reader.readJsonValue(), strings);
+      }
+    }
+
+    private JsonDataException unexpectedKey(String expected, JsonReader.Token token, JsonReader reader) {
+      return new JsonDataException("Expected " + expected + " key but was " + token + " at path " + reader.getPath());
+    }
+
+    private Object readValue(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonReader.Token.NUMBER) {
+        return reader.nextDouble();
+      }
+      return reader.readJsonValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object intern(Object value, Map<String, String> strings) {
+      if (value instanceof String) {
+        String existing = strings.putIfAbsent((String) value, (String) value);
+        return existing != null ? existing : value;
+      }
+      if (value instanceof List) {
+        ListIterator<Object> elements = ((List<Object>) value).listIterator();
+        while (elements.hasNext()) {
+          elements.set(intern(elements.next(), strings));
+        }
+      } else if (value instanceof Map) {
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+          entry.setValue(intern(entry.getValue(), strings));
+        }
+      }
+      return value;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, CompactViewQueryResponse<Object> value) throws IOException {
+      writer.beginObject();
+      writer.name("total_rows").value(value.getTotalRows());
+      writer.name("offset").value(value.getOffset());
+      if (value.getUpdateSeq() != null) {
+        writer.name("update_seq");
+        objectAdapter.toJson(writer, value.getUpdateSeq());
+      }
+      writer.name("rows");
+      writer.beginArray();
+      for (int i = 0; i < value.size(); i++) {
+        writer.beginObject();
+        writer.name("id").value(value.getId(i));
+        writer.name("key");
+        if (value.hasNumericKeys()) {
+          writer.value(value.getNumericKey(i));
+        } else {
+          objectAdapter.toJson(writer, value.getKey(i));
+        }
+        writer.name("value");
+        if (value.hasNumericValues()) {
+          writer.value(value.getNumericValue(i));
+        } else {
+          objectAdapter.toJson(writer, value.getValue(i));
+        }
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package de.gesellix.couchdb.moshi;
+
+import de.gesellix.couchdb.model.DocumentId;
+import de.gesellix.couchdb.model.NonReducedViewQueryResponseRow;
+
+import java.util.Objects;
+
+/**
+ * A row of a {@link CompactViewQueryResponse}, created on access.
+ */
+public class CompactViewQueryResponseRow<KeyType> implements NonReducedViewQueryResponseRow<KeyType, Object, DocumentId> {
+
+  private final String id;
+  private final KeyType key;
+  private final Object value;
+
+  public CompactViewQueryResponseRow(String id, KeyType key, Object value) {
+    this.id = id;
+    this.key = key;
+    this.value = value;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public String getDocId() {
+    return id;
+  }
+
+  @Override
+  public KeyType getKey() {
+    return key;
+  }
+
+  @Override
+  public Object getValue() {
+    return value;
+  }
+
+  /**
+   * Not supported by the compact format.
+   */
+  @Override
+  public DocumentId getDoc() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CompactViewQueryResponseRow<?> that = (CompactViewQueryResponseRow<?>) o;
+    return Objects.equals(id, that.id) && Objects.equals(key, that.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, key);
+  }
+
+  @Override
+  public String toString() {
+    return "CompactViewQueryResponseRow{" +
+        "id='" + id + '\'' +
+        ", key=" + key +
+        ", value=" + value +
+        '}';
+  }
+}
@@ -0,0 +1,54 @@
+package de.gesellix.couchdb.moshi;
+
+import com.squareup.moshi.JsonAdapter;
+import okio.Buffer;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * Keeps the raw JSON of a document and decodes it on first access.
+ * Register the {@link LazyDocumentJsonAdapterFactory} to read and write instances.
+ */
+public class LazyDocument<T> {
+
+  private final JsonAdapter<T> adapter;
+
+  private ByteString json;
+  private T document;
+
+  public LazyDocument(ByteString json, JsonAdapter<T> adapter) {
+    this.json = json;
+    this.adapter = adapter;
+  }
+
+  public synchronized T get() {
+    if (json != null) {
+      try {
+        document = adapter.fromJson(new Buffer().write(json));
+      } catch (IOException e) {
+        throw new IllegalStateException("could not decode document", e);
+      }
+      // allow the raw bytes to be garbage collected
+      json = null;
+    }
+    return document;
+  }
+
+  public synchronized boolean isDecoded() {
+    return json == null;
+  }
+
+  /**
+   * The raw JSON, or null when the document has already been decoded.
+   */
+  synchronized ByteString getJson() {
+    return json;
+  }
+
+  @Override
+  public String toString() {
+    ByteString raw = getJson();
+    return raw != null ? raw.utf8() : String.valueOf(get());
+  }
+}
@@ -0,0 +1,58 @@
+package de.gesellix.couchdb.moshi;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Set;
+
+public class LazyDocumentJsonAdapterFactory implements JsonAdapter.Factory {
+
+  @Override
+  public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+    if (!annotations.isEmpty() || Types.getRawType(type) != LazyDocument.class) {
+      return null;
+    }
+    Type documentType = type instanceof ParameterizedType
+        ? ((ParameterizedType) type).getActualTypeArguments()[0]
+        : Object.class;
+    return new LazyDocumentJsonAdapter<>(moshi.adapter(documentType)).nullSafe();
+  }
+
+  static class LazyDocumentJsonAdapter<T> extends JsonAdapter<LazyDocument<T>> {
+
+    private final JsonAdapter<T> documentAdapter;
+
+    LazyDocumentJsonAdapter(JsonAdapter<T> documentAdapter) {
+      this.documentAdapter = documentAdapter;
+    }
+
+    @Override
+    public LazyDocument<T> fromJson(JsonReader reader) throws IOException {
+      try (BufferedSource source = reader.nextSource()) {
+        return new LazyDocument<>(source.readByteString(), documentAdapter);
+      }
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, LazyDocument<T> value) throws IOException {
+      ByteString json = value.getJson();
+      if (json != null) {
+        try (BufferedSink sink = writer.valueSink()) {
+          sink.write(json);
+        }
+      } else {
+        documentAdapter.toJson(writer, value.get());
+      }
+    }
+  }
+}
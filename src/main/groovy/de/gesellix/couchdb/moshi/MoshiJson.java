@@ -20,7 +20,19 @@ public class MoshiJson implements Json {
   }
 
   public MoshiJson(Moshi.Builder builder) {
-    this.moshi = builder.build();
+    this.moshi = builder
+        .add(new LazyDocumentJsonAdapterFactory())
+        .add(new CompactViewQueryResponseJsonAdapterFactory())
+        .build();
+  }
+
+  /**
+   * Builds the adapters in advance, so that the first request doesn't need to create them via reflection.
+   * Moshi caches the adapters per type.
+   */
+  @Override
+  public void prepare(Collection<Type> types) {
+    types.forEach(type -> moshi.adapter(type));
   }
 
   @Override
@@ -33,6 +45,15 @@ public class MoshiJson implements Json {
     return moshi.adapter(Collection.class).toJson(keys);
   }
 
+  @Override
+  public String encodeQueryValue(Object key) {
+    // e.g. Groovy GStrings
+    if (key instanceof CharSequence) {
+      return encodeQueryValue(key.toString());
+    }
+    return moshi.adapter(Object.class).toJson(key);
+  }
+
   @Override
   public String encodeDocument(Map<Object, Object> document) {
     return moshi.adapter(Map.class).toJson(document);
@@ -50,15 +71,20 @@ public class MoshiJson implements Json {
 
   @Override
   public <T> T consume(InputStream stream, Class<T> type) throws IOException {
-    T result = moshi.adapter(type).fromJson(Okio.buffer(Okio.source(stream)));
-    Util.closeQuietly(stream);
-    return result;
+    // closing the stream releases the connection, even when decoding fails
+    try {
+      return moshi.adapter(type).fromJson(Okio.buffer(Okio.source(stream)));
+    } finally {
+      Util.closeQuietly(stream);
+    }
   }
 
   @Override
   public <T> T consume(InputStream stream, Type type) throws IOException {
-    T result = (T) moshi.adapter(type).fromJson(Okio.buffer(Okio.source(stream)));
-    Util.closeQuietly(stream);
-    return result;
+    try {
+      return (T) moshi.adapter(type).fromJson(Okio.buffer(Okio.source(stream)));
+    } finally {
+      Util.closeQuietly(stream);
+    }
   }
 }
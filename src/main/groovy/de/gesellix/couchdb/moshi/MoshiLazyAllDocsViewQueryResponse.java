@@ -0,0 +1,68 @@
+package de.gesellix.couchdb.moshi;
+
+import com.squareup.moshi.Json;
+import de.gesellix.couchdb.model.DocumentId;
+import de.gesellix.couchdb.model.NonReducedViewQueryResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Like the {@link MoshiAllDocsViewQueryResponse}, but decodes the documents of include_docs=true queries on demand.
+ */
+public class MoshiLazyAllDocsViewQueryResponse<DocType extends DocumentId> implements NonReducedViewQueryResponse<String, MoshiLazyAllDocsViewQueryResponseRow<DocType>> {
+
+  @Json(name = "offset")
+  private Integer offset;
+  @Json(name = "total_rows")
+  private Integer totalRows;
+  @Json(name = "rows")
+  private List<MoshiLazyAllDocsViewQueryResponseRow<DocType>> rows = new ArrayList<>();
+  @Json(name = "update_seq")
+  private Object updateSeq;
+
+  @Override
+  public Integer getOffset() {
+    return offset;
+  }
+
+  public void setOffset(Integer offset) {
+    this.offset = offset;
+  }
+
+  @Override
+  public Integer getTotalRows() {
+    return totalRows;
+  }
+
+  public void setTotalRows(Integer totalRows) {
+    this.totalRows = totalRows;
+  }
+
+  @Override
+  public List<MoshiLazyAllDocsViewQueryResponseRow<DocType>> getRows() {
+    return rows;
+  }
+
+  public void setRows(List<MoshiLazyAllDocsViewQueryResponseRow<DocType>> rows) {
+    this.rows = rows;
+  }
+
+  public void setUpdateSeq(Object updateSeq) {
+    this.updateSeq = updateSeq;
+  }
+
+  public Object getUpdateSeq() {
+    return updateSeq;
+  }
+
+  @Override
+  public String toString() {
+    return "LazyViewQueryResponse{" +
+        "offset=" + offset +
+        ", totalRows=" + totalRows +
+        ", rows=" + rows +
+        ", updateSeq=" + updateSeq +
+        '}';
+  }
+}
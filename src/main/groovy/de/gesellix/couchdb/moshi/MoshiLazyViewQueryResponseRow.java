@@ -0,0 +1,98 @@
+package de.gesellix.couchdb.moshi;
+
+import com.squareup.moshi.Json;
+import de.gesellix.couchdb.model.DocumentId;
+import de.gesellix.couchdb.model.NonReducedViewQueryResponseRow;
+import de.gesellix.couchdb.model.RowReference;
+
+import java.util.Objects;
+
+public class MoshiLazyViewQueryResponseRow<KeyType, ValueType, DocType extends DocumentId>
+    implements NonReducedViewQueryResponseRow<KeyType, ValueType, DocType>, RowReference<KeyType> {
+
+  @Json(name = "id")
+  public String id;
+
+  @Json(name = "key")
+  public KeyType key;
+
+  @Json(name = "value")
+  public ValueType value;
+
+  /**
+   * available when include_docs == true
+   */
+  @Json(name = "doc")
+  public LazyDocument<DocType> doc;
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getDocId() {
+    return id;
+  }
+
+  @Override
+  public KeyType getKey() {
+    return key;
+  }
+
+  public void setKey(KeyType key) {
+    this.key = key;
+  }
+
+  @Override
+  public ValueType getValue() {
+    return value;
+  }
+
+  public void setValue(ValueType value) {
+    this.value = value;
+  }
+
+  /**
+   * Decodes the document on first access.
+   */
+  @Override
+  public DocType getDoc() {
+    return doc == null ? null : doc.get();
+  }
+
+  public void setDoc(LazyDocument<DocType> doc) {
+    this.doc = doc;
+  }
+
+  public boolean isDocDecoded() {
+    return doc == null || doc.isDecoded();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    MoshiLazyViewQueryResponseRow<?, ?, ?> that = (MoshiLazyViewQueryResponseRow<?, ?, ?>) o;
+    return Objects.equals(id, that.id) && Objects.equals(key, that.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, key);
+  }
+
+  @Override
+  public String toString() {
+    return "MoshiLazyViewQueryResponseRow{" +
+        "id='" + id + '\'' +
+        ", key=" + key +
+        ", value=" + value +
+        ", doc=" + doc +
+        '}';
+  }
+}
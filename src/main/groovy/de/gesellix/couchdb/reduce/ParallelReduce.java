@@ -0,0 +1,114 @@
+package de.gesellix.couchdb.reduce;
+
+import de.gesellix.couchdb.CouchDbClient;
+import de.gesellix.couchdb.FanOutExecutor;
+import de.gesellix.couchdb.FanOutResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the key range of a reduced view query into sub-ranges, queries them concurrently,
+ * and merges the partial results per group key with a {@link ReduceCombiner}.
+ * <p>
+ * The sub-ranges are defined by boundaries <code>[k0, k1, ..., kn]</code>, resulting in the ranges
+ * <code>[k0, k1), [k1, k2), ..., [kn-1, kn]</code>. The first and last boundary may be null for an open range.
+ * The boundaries need to be in ascending order of the view collation, see {@link ViewKeyCollator}.
+ * Groups spanning a boundary are reported by both neighbouring sub-ranges, and are merged on the client.
+ */
+public class ParallelReduce {
+
+  private static final Logger log = LoggerFactory.getLogger(ParallelReduce.class);
+
+  private final CouchDbClient client;
+  private final FanOutExecutor executor;
+
+  public ParallelReduce(CouchDbClient client, FanOutExecutor executor) {
+    this.client = client;
+    this.executor = executor;
+  }
+
+  /**
+   * @param boundaries  keys splitting the range into sub-ranges, at least a start and an end key
+   * @param groupLevel  group by the first n elements of array keys, or null
+   * @param group       group by the exact key, implied by a groupLevel
+   * @return the merged rows with "key" and "value", ordered by key
+   */
+  public List<Map<String, Object>> query(
+      String db, String designDocId, String viewName,
+      List<?> boundaries, Integer groupLevel, boolean group,
+      ReduceCombiner combiner,
+      long timeout, TimeUnit unit) {
+    if (boundaries == null || boundaries.size() < 2) {
+      throw new IllegalArgumentException("boundaries need at least a start and an end key");
+    }
+    int rangeCount = boundaries.size() - 1;
+    for (int i = 1; i < rangeCount; i++) {
+      if (boundaries.get(i) == null) {
+        throw new IllegalArgumentException("only the first and the last boundary may be null");
+      }
+    }
+    ViewKeyCollator collator = new ViewKeyCollator();
+    for (int i = 1; i < boundaries.size(); i++) {
+      Object lower = boundaries.get(i - 1);
+      Object upper = boundaries.get(i);
+      if (lower != null && upper != null && collator.compare(lower, upper) >= 0) {
+        throw new IllegalArgumentException(String.format("boundaries must be in ascending order, but %s is not before %s", lower, upper));
+      }
+    }
+    List<Integer> ranges = IntStream.range(0, rangeCount).boxed().collect(Collectors.toList());
+
+    long start = System.currentTimeMillis();
+    FanOutResult<Integer, List<Map>> partials = executor.execute(ranges, timeout, unit, range -> {
+      boolean lastRange = range == rangeCount - 1;
+      return client.queryReduced(db, designDocId, viewName,
+          boundaries.get(range), boundaries.get(range + 1), lastRange,
+          groupLevel, group);
+    });
+    if (!partials.isComplete()) {
+      Map.Entry<Integer, Throwable> failure = partials.getFailures().entrySet().iterator().next();
+      throw new IllegalStateException(String.format("could not query sub-range %d of %d: [%s, %s]",
+          failure.getKey() + 1, rangeCount, boundaries.get(failure.getKey()), boundaries.get(failure.getKey() + 1)),
+          failure.getValue());
+    }
+
+    List<Map<String, Object>> merged = merge(ranges.stream()
+        .map(range -> partials.getResults().get(range))
+        .collect(Collectors.toList()), combiner);
+    log.debug("merged {} sub-ranges into {} rows in {}ms", rangeCount, merged.size(), System.currentTimeMillis() - start);
+    return merged;
+  }
+
+  /**
+   * Merges the rows of ordered sub-ranges, combining the values of equal keys.
+   */
+  @SuppressWarnings("unchecked")
+  static List<Map<String, Object>> merge(List<List<Map>> partials, ReduceCombiner combiner) {
+    Map<Object, Object> valuesByKey = new LinkedHashMap<>();
+    for (List<Map> rows : partials) {
+      for (Map<String, Object> row : rows) {
+        Object key = row.get("key");
+        if (valuesByKey.containsKey(key)) {
+          valuesByKey.put(key, combiner.combine(valuesByKey.get(key), row.get("value")));
+        } else {
+          valuesByKey.put(key, row.get("value"));
+        }
+      }
+    }
+    List<Map<String, Object>> merged = new ArrayList<>(valuesByKey.size());
+    valuesByKey.forEach((key, value) -> {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("key", key);
+      row.put("value", value);
+      merged.add(row);
+    });
+    return merged;
+  }
+}
@@ -0,0 +1,11 @@
+package de.gesellix.couchdb.reduce;
+
+/**
+ * Merges two partial results of a reduce function, like a rereduce on the client side.
+ * Implementations need to be associative, because the order of merges is not defined.
+ */
+@FunctionalInterface
+public interface ReduceCombiner {
+
+  Object combine(Object left, Object right);
+}
@@ -0,0 +1,109 @@
+package de.gesellix.couchdb.reduce;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Combiners for the built-in reduce functions <code>_sum</code>, <code>_count</code>, and <code>_stats</code>.
+ * <code>_approx_count_distinct</code> can't be merged from partial results.
+ */
+public final class ReduceCombiners {
+
+  /**
+   * Sums numbers, arrays of numbers (element-wise), and objects with numeric values (by key), like <code>_sum</code>.
+   */
+  public static final ReduceCombiner SUM = ReduceCombiners::sum;
+
+  public static final ReduceCombiner COUNT = ReduceCombiners::sum;
+
+  /**
+   * Merges objects with <code>sum</code>, <code>count</code>, <code>min</code>, <code>max</code>, and <code>sumsqr</code>,
+   * or arrays of such objects, like <code>_stats</code>.
+   */
+  public static final ReduceCombiner STATS = ReduceCombiners::stats;
+
+  private ReduceCombiners() {
+  }
+
+  public static ReduceCombiner forBuiltin(String reduceFunction) {
+    switch (reduceFunction) {
+      case "_sum":
+        return SUM;
+      case "_count":
+        return COUNT;
+      case "_stats":
+        return STATS;
+      default:
+        throw new IllegalArgumentException("no combiner available for reduce function '" + reduceFunction + "'");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object sum(Object left, Object right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left instanceof Number && right instanceof Number) {
+      return ((Number) left).doubleValue() + ((Number) right).doubleValue();
+    }
+    if (left instanceof List && right instanceof List) {
+      List<Object> leftList = (List<Object>) left;
+      List<Object> rightList = (List<Object>) right;
+      List<Object> sum = new ArrayList<>();
+      for (int i = 0; i < Math.max(leftList.size(), rightList.size()); i++) {
+        sum.add(sum(i < leftList.size() ? leftList.get(i) : null, i < rightList.size() ? rightList.get(i) : null));
+      }
+      return sum;
+    }
+    if (left instanceof Map && right instanceof Map) {
+      Map<String, Object> sum = new LinkedHashMap<>((Map<String, Object>) left);
+      ((Map<String, Object>) right).forEach((key, value) -> sum.put(key, sum(sum.get(key), value)));
+      return sum;
+    }
+    throw new IllegalArgumentException("cannot sum " + left + " and " + right);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object stats(Object left, Object right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left instanceof List && right instanceof List) {
+      List<Object> leftList = (List<Object>) left;
+      List<Object> rightList = (List<Object>) right;
+      List<Object> stats = new ArrayList<>();
+      for (int i = 0; i < Math.max(leftList.size(), rightList.size()); i++) {
+        stats.add(stats(i < leftList.size() ? leftList.get(i) : null, i < rightList.size() ? rightList.get(i) : null));
+      }
+      return stats;
+    }
+    if (left instanceof Map && right instanceof Map) {
+      Map<String, Object> leftStats = (Map<String, Object>) left;
+      Map<String, Object> rightStats = (Map<String, Object>) right;
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("sum", number(leftStats, "sum") + number(rightStats, "sum"));
+      stats.put("count", number(leftStats, "count") + number(rightStats, "count"));
+      stats.put("min", Math.min(number(leftStats, "min"), number(rightStats, "min")));
+      stats.put("max", Math.max(number(leftStats, "max"), number(rightStats, "max")));
+      stats.put("sumsqr", number(leftStats, "sumsqr") + number(rightStats, "sumsqr"));
+      return stats;
+    }
+    throw new IllegalArgumentException("cannot merge stats " + left + " and " + right);
+  }
+
+  private static double number(Map<String, Object> stats, String name) {
+    Object value = stats.get(name);
+    if (!(value instanceof Number)) {
+      throw new IllegalArgumentException("missing '" + name + "' in stats " + stats);
+    }
+    return ((Number) value).doubleValue();
+  }
+}
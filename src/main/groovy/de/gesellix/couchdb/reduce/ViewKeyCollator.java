@@ -0,0 +1,82 @@
+package de.gesellix.couchdb.reduce;
+
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Approximates CouchDB's view collation: null, false, true, numbers, strings, arrays, objects.
+ * Strings are compared with the root locale {@link Collator}, which is close to, but not exactly the same as
+ * the ICU collation used by CouchDB.
+ */
+class ViewKeyCollator implements Comparator<Object> {
+
+  private final Collator strings = Collator.getInstance(Locale.ROOT);
+
+  @Override
+  public int compare(Object left, Object right) {
+    int rank = Integer.compare(rank(left), rank(right));
+    if (rank != 0) {
+      return rank;
+    }
+    if (left instanceof Number) {
+      return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+    }
+    if (left instanceof CharSequence) {
+      return strings.compare(left.toString(), right.toString());
+    }
+    if (left instanceof List) {
+      return compareElements(((List<?>) left).iterator(), ((List<?>) right).iterator());
+    }
+    if (left instanceof Map) {
+      return compareElements(((Map<?, ?>) left).entrySet().iterator(), ((Map<?, ?>) right).entrySet().iterator());
+    }
+    // null or equal booleans
+    return 0;
+  }
+
+  private int compareElements(Iterator<?> left, Iterator<?> right) {
+    while (left.hasNext() && right.hasNext()) {
+      Object l = left.next();
+      Object r = right.next();
+      int result = l instanceof Map.Entry
+          ? compareEntries((Map.Entry<?, ?>) l, (Map.Entry<?, ?>) r)
+          : compare(l, r);
+      if (result != 0) {
+        return result;
+      }
+    }
+    // the shorter one comes first
+    return Boolean.compare(left.hasNext(), right.hasNext());
+  }
+
+  private int compareEntries(Map.Entry<?, ?> left, Map.Entry<?, ?> right) {
+    int result = compare(left.getKey(), right.getKey());
+    return result != 0 ? result : compare(left.getValue(), right.getValue());
+  }
+
+  private static int rank(Object key) {
+    if (key == null) {
+      return 0;
+    }
+    if (key instanceof Boolean) {
+      return (Boolean) key ? 2 : 1;
+    }
+    if (key instanceof Number) {
+      return 3;
+    }
+    if (key instanceof CharSequence) {
+      return 4;
+    }
+    if (key instanceof List) {
+      return 5;
+    }
+    if (key instanceof Map) {
+      return 6;
+    }
+    throw new IllegalArgumentException("unsupported key type " + key.getClass().getName());
+  }
+}
@@ -1,8 +1,17 @@
 package de.gesellix.couchdb
 
 import com.squareup.moshi.Moshi
+import com.squareup.moshi.Types
+import de.gesellix.couchdb.model.MapWithDocumentId
+import de.gesellix.couchdb.model.RowReference
+import de.gesellix.couchdb.model.ViewQueryResponse
 import de.gesellix.couchdb.moshi.LocalDateJsonAdapter
+import de.gesellix.couchdb.moshi.MapWithDocumentIdAdapter
+import de.gesellix.couchdb.moshi.MoshiAllDocsViewQueryResponse
 import de.gesellix.couchdb.moshi.MoshiJson
+import de.gesellix.couchdb.moshi.MoshiViewQueryResponse
+import de.gesellix.couchdb.moshi.MoshiViewQueryResponseRow
+import de.gesellix.couchdb.moshi.NestedRevisionAdapter
 import org.testcontainers.containers.GenericContainer
 import org.testcontainers.containers.wait.strategy.Wait
 import org.testcontainers.spock.Testcontainers
@@ -33,22 +42,28 @@ class CouchDbClientIntegrationSpec extends Specification {
   CouchDbClient client
   @Shared
   String database
+  @Shared
+  String partitionedDatabase
 
   def setupSpec() {
     client = new CouchDbClient(
         new MoshiJson(
             new Moshi.Builder()
-                .add(LocalDate, new LocalDateJsonAdapter())))
+                .add(LocalDate, new LocalDateJsonAdapter())
+                .add(new NestedRevisionAdapter())
+                .add(new MapWithDocumentIdAdapter())))
     client.couchdbHost = System.env['couchdb.host'] ?: couchdbContainer.host
     client.couchdbPort = System.env['couchdb.port'] ?: couchdbContainer.getMappedPort(COUCHDB_PORT)
     client.couchdbUsername = System.env['couchdb.username'] ?: "admin"
     client.couchdbPassword = System.env['couchdb.password'] ?: "admin"
     database = "test-db-${UUID.randomUUID()}"
+    partitionedDatabase = "test-db-partitioned-${UUID.randomUUID()}"
   }
 
   def cleanupSpec() {
     if (couchdbContainer.isRunning()) {
       !client.containsDb(database) || client.deleteDb(database)
+      !client.containsDb(partitionedDatabase) || client.deleteDb(partitionedDatabase)
     }
   }
 
@@ -81,6 +96,24 @@ class CouchDbClientIntegrationSpec extends Specification {
     !result.views["by_a-property"].reduce
   }
 
+  def "warm up"() {
+    given:
+    def viewResponseType = Types.newParameterizedType(
+        MoshiViewQueryResponse, String, String, Types.newParameterizedType(
+        MapWithDocumentId, Object))
+
+    when:
+    Map summary = client.warmUp(3, [viewResponseType], [
+        (database): ["_design/${database.capitalize()}".toString(), "_design/missing"]
+    ])
+
+    then:
+    summary.connections >= 3
+    summary.failedConnections == 0
+    summary.designDocs == 2
+    summary.missingDesignDocs == ["${database}/_design/missing".toString()]
+  }
+
   def "create doc with existing _id"() {
     given:
     def docId = "test-id/${UUID.randomUUID()}".toString()
@@ -261,6 +294,88 @@ class CouchDbClientIntegrationSpec extends Specification {
     ].sort()
   }
 
+  def "create partitioned database"() {
+    when:
+    client.createDb(partitionedDatabase, true)
+
+    then:
+    client.containsDb(partitionedDatabase)
+    and:
+    client.getDbInfo(partitionedDatabase).props?.partitioned == true
+  }
+
+  def "create documents in partitions"() {
+    given:
+    List<Map> docs = (1..5).collect { [_id: CouchDbClient.partitionedDocId("tenant-a", "doc-${it}"), title: "title-a-${it}"] } +
+        (1..3).collect { [_id: CouchDbClient.partitionedDocId("tenant-b", "doc-${it}"), title: "title-b-${it}"] }
+
+    when:
+    client.updateBulk(partitionedDatabase, docs)
+    client.createOrUpdateFindByPropertyView(partitionedDatabase, "title")
+
+    then:
+    client.getPartitionInfo(partitionedDatabase, "tenant-a").doc_count == 5
+    client.getPartitionInfo(partitionedDatabase, "tenant-b").doc_count == 3
+  }
+
+  def "query partition /_all_docs"() {
+    given:
+    def resultType = Types.newParameterizedType(
+        MoshiAllDocsViewQueryResponse, Types.newParameterizedType(
+        MapWithDocumentId, Object))
+
+    when:
+    MoshiAllDocsViewQueryResponse<MapWithDocumentId> page = client.getPartitionAllDocs(
+        resultType, partitionedDatabase, "tenant-b", null, null, 10, true)
+
+    then:
+    page.rows.size() == 3
+    page.rows.every { CouchDbClient.partitionOf(it.docId) == "tenant-b" }
+  }
+
+  def "query partition with _find"() {
+    when:
+    Map result = client.findInPartition(partitionedDatabase, "tenant-a", [selector: [title: "title-a-2"]])
+
+    then:
+    result.docs.size() == 1
+    result.docs.first()._id == "tenant-a:doc-2"
+  }
+
+  def "page partitioned /_view/a-view"() {
+    given:
+    String designDocId = "_design/${partitionedDatabase.capitalize()}"
+    def resultType = Types.newParameterizedType(
+        MoshiViewQueryResponse, String, String, Types.newParameterizedType(
+        MapWithDocumentId, Object))
+    def iterator = new PagedViewIterator<String, MoshiViewQueryResponseRow<String, String, MapWithDocumentId<Object>>>(2, { RowReference<String> nextPage, Integer limit ->
+      client.queryPartitionPage(
+          resultType, partitionedDatabase, "tenant-a", designDocId, "by_title", false,
+          nextPage?.key, nextPage?.docId, null, limit, true, false)
+    })
+
+    when:
+    List<ViewQueryResponse<String, MoshiViewQueryResponseRow<String, String, MapWithDocumentId<Object>>>> pages = []
+    while (iterator.hasNext()) {
+      pages << iterator.next()
+    }
+
+    then:
+    pages.size() == 3
+    pages.collect { it.rows }.flatten().collect { it.key } == (1..5).collect { "title-a-${it}".toString() }
+  }
+
+  def "reject invalid partitions"() {
+    when:
+    CouchDbClient.partitionedDocId(partition, "doc-1")
+
+    then:
+    thrown(IllegalArgumentException)
+
+    where:
+    partition << [null, "", "_reserved", "with:colon"]
+  }
+
   def "delete test database"() {
     when:
     client.deleteDb(database)
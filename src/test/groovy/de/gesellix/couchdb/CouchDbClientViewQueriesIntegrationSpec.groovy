@@ -3,6 +3,10 @@ package de.gesellix.couchdb
 import com.squareup.moshi.Moshi
 import com.squareup.moshi.Types
 import de.gesellix.couchdb.model.MapWithDocumentId
+import de.gesellix.couchdb.model.RowReference
+import de.gesellix.couchdb.model.ViewQueryResponse
+import de.gesellix.couchdb.moshi.CompactViewQueryResponse
+import de.gesellix.couchdb.moshi.CompactViewQueryResponseRow
 import de.gesellix.couchdb.moshi.LocalDateJsonAdapter
 import de.gesellix.couchdb.moshi.MapWithDocumentIdAdapter
 import de.gesellix.couchdb.moshi.MoshiAllDocsViewQueryResponse
@@ -11,6 +15,7 @@ import de.gesellix.couchdb.moshi.MoshiReducedViewQueryResponse
 import de.gesellix.couchdb.moshi.MoshiViewQueryResponse
 import de.gesellix.couchdb.moshi.MoshiViewQueryResponseRow
 import de.gesellix.couchdb.moshi.NestedRevisionAdapter
+import de.gesellix.couchdb.reduce.ReduceCombiners
 import org.testcontainers.containers.GenericContainer
 import org.testcontainers.containers.wait.strategy.Wait
 import org.testcontainers.spock.Testcontainers
@@ -83,6 +88,11 @@ class CouchDbClientViewQueriesIntegrationSpec extends Specification {
         "quotes-by-author",
         "function(doc) { if (doc['author']) { emit(doc['author'], doc._id) } }",
         "function(keys, values, rereduce) { return true }")
+    // numeric keys, including many rows with the key 0
+    client.createOrUpdateView(quotesDatabase,
+        "quotes-by-length-digit",
+        "function(doc) { if (doc['text']) { emit(doc['text'].length % 10, null) } }",
+        null)
 
     authorsDatabase = "test-db-authors-${UUID.randomUUID()}"
     client.createDb(authorsDatabase)
@@ -310,6 +320,50 @@ class CouchDbClientViewQueriesIntegrationSpec extends Specification {
     page1.rows.last().docId == page2.rows.first().docId
   }
 
+  void "page /_view/a-view with numeric keys into compact responses"() {
+    given:
+    String designDocId = "_design/${quotesDatabase.capitalize()}"
+    def resultType = Types.newParameterizedType(CompactViewQueryResponse, Double)
+    def iterator = new PagedViewIterator<Double, CompactViewQueryResponseRow<Double>>(100, { RowReference<Double> nextPage, Integer limit ->
+      client.queryPage(
+          resultType, quotesDatabase, designDocId, "quotes-by-length-digit", false,
+          nextPage?.key, nextPage?.docId, null, limit, false, false)
+    })
+
+    when:
+    List<ViewQueryResponse<Double, CompactViewQueryResponseRow<Double>>> pages = []
+    while (iterator.hasNext()) {
+      pages << iterator.next()
+    }
+    List<CompactViewQueryResponseRow<Double>> rows = pages.collect { it.rows }.flatten()
+
+    then:
+    pages.every { ((CompactViewQueryResponse<Double>) it).hasNumericKeys() }
+    rows.size() == ((CompactViewQueryResponse<Double>) pages.first()).totalRows
+    rows*.id.unique().size() == rows.size()
+    rows*.key == rows*.key.sort(false)
+    rows.first().key == 0d
+  }
+
+  void "page /_view/a-view without waiting for the index, update=lazy"() {
+    given:
+    String designDocId = "_design/${quotesDatabase.capitalize()}"
+    def pageSize = 11
+    def resultType = Types.newParameterizedType(
+        MoshiViewQueryResponse, String, String, Types.newParameterizedType(
+        MapWithDocumentId, String))
+
+    when:
+    MoshiViewQueryResponse<String, String, MapWithDocumentId<String>> page = client.queryPage(
+        resultType, quotesDatabase, designDocId, "quotes-by-author", false,
+        null, null, null, pageSize, false, false,
+        null, null, false,
+        "lazy", true)
+
+    then:
+    page.rows.size() == pageSize
+  }
+
   void "page /_view/a-view, reduce=true"() {
     given:
     String designDocId = "_design/${quotesDatabase.capitalize()}"
@@ -421,4 +475,65 @@ class CouchDbClientViewQueriesIntegrationSpec extends Specification {
     and:
     page.rows.first().get("key") == [topWork, author]
   }
+
+  void "page /_view/a-view with a complex key, reduce=true, group_level=1"() {
+    given:
+    String designDocId = "_design/${authorsDatabase.capitalize()}"
+    def resultType = Types.newParameterizedType(
+        MoshiReducedViewQueryResponse, Types.newParameterizedType(List, String), RowWithComplexKey)
+
+    when:
+    MoshiReducedViewQueryResponse<List<String>, RowWithComplexKey> page = client.queryPage(
+        resultType, authorsDatabase, designDocId, "top-work-by-author", true,
+        null, null,
+        null, null,
+        false, false,
+        null, null,
+        false,
+        null, false,
+        1)
+
+    then:
+    page.rows.size() > 1
+    page.rows.every { it.getKey().size() == 1 }
+  }
+
+  void "query a reduced view in parallel sub-ranges"() {
+    given:
+    String designDocId = "_design/${authorsDatabase.capitalize()}"
+
+    when:
+    List<Map> expected = client.queryReduced(authorsDatabase, designDocId, "top-work-by-author", null, null, true, 1)
+    List<Map<String, Object>> result = client.queryReducedParallel(authorsDatabase, designDocId, "top-work-by-author",
+        [null, ["G"], ["M"], ["T"], null], ReduceCombiners.SUM, 1)
+
+    then:
+    expected.size() > 1
+    result == expected
+  }
+
+  void "query a reduced view in parallel sub-ranges into a typed response"() {
+    given:
+    String designDocId = "_design/${authorsDatabase.capitalize()}"
+    def resultType = Types.newParameterizedType(
+        MoshiReducedViewQueryResponse, Types.newParameterizedType(List, String), RowWithComplexKey)
+
+    when:
+    MoshiReducedViewQueryResponse<List<String>, RowWithComplexKey> expected = client.queryPage(
+        resultType, authorsDatabase, designDocId, "top-work-by-author", true,
+        null, null,
+        null, null,
+        false, false,
+        null, null,
+        false,
+        null, false,
+        1)
+    MoshiReducedViewQueryResponse<List<String>, RowWithComplexKey> result = client.queryReducedParallel(
+        resultType, authorsDatabase, designDocId, "top-work-by-author",
+        [null, ["G"], ["M"], ["T"], null], ReduceCombiners.SUM, 1)
+
+    then:
+    result.rows*.getKey() == expected.rows*.getKey()
+    result.rows*.get("value") == expected.rows*.get("value")
+  }
 }
@@ -0,0 +1,67 @@
+package de.gesellix.couchdb
+
+import de.gesellix.couchdb.moshi.MoshiJson
+import okhttp3.Interceptor
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+import static okhttp3.MediaType.parse
+
+class CouchDbClientWarmUpSpec extends Specification {
+
+  List<Request> requests = new CopyOnWriteArrayList<>()
+  CouchDbClient client = new CouchDbClient(new MoshiJson())
+
+  def setup() {
+    client.client = client.client.newBuilder()
+        .addInterceptor({ Interceptor.Chain chain ->
+          Request request = chain.request()
+          requests << request
+          // only "_design/A-db" exists
+          int code = request.url().encodedPath().endsWith("/_design/Another-db") ? 404 : 200
+          return new Response.Builder()
+              .request(request)
+              .protocol(Protocol.HTTP_1_1)
+              .code(code)
+              .message("fake")
+              .body(ResponseBody.create("", parse("application/json")))
+              .build()
+        } as Interceptor)
+        .build()
+  }
+
+  def "should skip opening connections when connections is 0"() {
+    when:
+    Map summary = client.warmUp(0, [], ["a-db": ["_design/A-db", "_design/Another-db"]])
+
+    then:
+    summary.failedConnections == 0
+    summary.designDocs == 2
+    summary.missingDesignDocs == ["a-db/_design/Another-db"]
+    requests*.method() == ["HEAD", "HEAD"]
+    !requests*.url()*.encodedPath().contains("/_up")
+  }
+
+  def "should open the given number of connections"() {
+    when:
+    Map summary = client.warmUp(2)
+
+    then:
+    summary.failedConnections == 0
+    requests*.url()*.encodedPath() == ["/_up", "/_up"]
+  }
+
+  def "should reject a negative number of connections"() {
+    when:
+    client.warmUp(-1)
+
+    then:
+    thrown(IllegalArgumentException)
+    requests.empty
+  }
+}
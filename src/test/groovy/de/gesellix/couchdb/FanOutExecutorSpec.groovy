@@ -0,0 +1,124 @@
+package de.gesellix.couchdb
+
+import okhttp3.Call
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicInteger
+
+class FanOutExecutorSpec extends Specification {
+
+  def "should collect results per input"() {
+    given:
+    def executor = new FanOutExecutor(4)
+
+    when:
+    FanOutResult<String, Integer> result = executor.execute(["db-a", "db-bb", "db-ccc"], 5, TimeUnit.SECONDS, { String db -> db.length() })
+
+    then:
+    result.complete
+    result.results == ["db-a": 4, "db-bb": 5, "db-ccc": 6]
+  }
+
+  def "should collect partial failures"() {
+    given:
+    def executor = new FanOutExecutor(4)
+
+    when:
+    FanOutResult<String, String> result = executor.execute(["db-a", "db-b"], 5, TimeUnit.SECONDS, { String db ->
+      if (db == "db-b") {
+        throw new IllegalStateException("could not get db info for '${db}'")
+      }
+      return db
+    })
+
+    then:
+    !result.complete
+    result.results == ["db-a": "db-a"]
+    result.failures["db-b"] instanceof IllegalStateException
+  }
+
+  def "should cancel operations exceeding the deadline"() {
+    given:
+    def executor = new FanOutExecutor(4)
+    def blocker = new CountDownLatch(1)
+
+    when:
+    FanOutResult<String, String> result = executor.execute(["fast", "slow"], 100, TimeUnit.MILLISECONDS, { String input ->
+      if (input == "slow") {
+        blocker.await()
+      }
+      return input
+    })
+
+    then:
+    result.results == [fast: "fast"]
+    result.failures["slow"] instanceof TimeoutException
+  }
+
+  def "should cancel blocking calls exceeding the deadline"() {
+    given:
+    // accepts connections, but never responds
+    ServerSocket server = new ServerSocket(0, 10, InetAddress.loopbackAddress)
+    Thread acceptor = Thread.start {
+      List<Socket> sockets = []
+      try {
+        while (true) {
+          sockets << server.accept()
+        }
+      } catch (IOException ignored) {
+        sockets*.close()
+      }
+    }
+    CallTracker callTracker = new CallTracker()
+    OkHttpClient okHttpClient = new OkHttpClient.Builder()
+        .eventListenerFactory(callTracker)
+        .readTimeout(30, TimeUnit.SECONDS)
+        .build()
+    List<Call> calls = new CopyOnWriteArrayList<>()
+    def executor = new FanOutExecutor(1, { Executors.newFixedThreadPool(1) }, callTracker)
+
+    when:
+    long start = System.nanoTime()
+    FanOutResult<String, Integer> result = executor.execute(["a-db"], 200, TimeUnit.MILLISECONDS, { String db ->
+      Call call = okHttpClient.newCall(new Request.Builder().url("http://127.0.0.1:${server.localPort}/${db}").build())
+      calls << call
+      return call.execute().code()
+    })
+
+    then:
+    result.failures["a-db"] instanceof TimeoutException
+    calls*.canceled == [true]
+    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < FanOutExecutor.TERMINATION_TIMEOUT_MILLIS
+
+    cleanup:
+    server?.close()
+    acceptor?.join(1000)
+  }
+
+  def "should not exceed the max concurrency"() {
+    given:
+    def executor = new FanOutExecutor(2)
+    def running = new AtomicInteger()
+    def maxRunning = new AtomicInteger()
+
+    when:
+    FanOutResult<Integer, Integer> result = executor.execute((1..20).toList(), 5, TimeUnit.SECONDS, { Integer input ->
+      maxRunning.accumulateAndGet(running.incrementAndGet(), { a, b -> Math.max(a, b) })
+      Thread.sleep(5)
+      running.decrementAndGet()
+      return input
+    })
+
+    then:
+    result.complete
+    result.results.size() == 20
+    maxRunning.get() <= 2
+  }
+}
@@ -3,6 +3,8 @@ package de.gesellix.couchdb
 import de.gesellix.couchdb.model.MapWithDocumentId
 import de.gesellix.couchdb.model.RowReference
 import de.gesellix.couchdb.model.ViewQueryResponse
+import de.gesellix.couchdb.moshi.CompactViewQueryResponse
+import de.gesellix.couchdb.moshi.CompactViewQueryResponseRow
 import de.gesellix.couchdb.moshi.MoshiViewQueryResponse
 import de.gesellix.couchdb.moshi.MoshiViewQueryResponseRow
 import spock.lang.Specification
@@ -122,4 +124,31 @@ class PagedViewIteratorSpec extends Specification {
         [id: "docid-7", key: "docid-7"] as MoshiViewQueryResponseRow,
     ]
   }
+
+  def "should iterate over multiple compact pages"() {
+    given:
+    List<Integer> database = (1..7).toList()
+
+    def pageProvider = { RowReference<Double> nextPage, Integer limit ->
+      int startindex = nextPage == null ? 0 : database.indexOf(nextPage.key.intValue())
+      int endindex = Math.min(database.size(), startindex + limit)
+      def response = new CompactViewQueryResponse<Double>(totalRows: database.size(), offset: startindex)
+      database.subList(startindex, endindex).each {
+        response.addRow("docid-${it}".toString(), it, it * 10)
+      }
+      return response
+    }
+    def iterator = new PagedViewIterator<Double, CompactViewQueryResponseRow<Double>>(3, pageProvider)
+
+    when:
+    List<ViewQueryResponse<Double, CompactViewQueryResponseRow<Double>>> pages = []
+    while (iterator.hasNext()) {
+      pages << iterator.next()
+    }
+
+    then:
+    pages.size() == 3
+    pages.collect { it.rows }.flatten().collect { it.id } == database.collect { "docid-${it}".toString() }
+    pages.collect { it.rows }.flatten().collect { it.value } == database.collect { it * 10d }
+  }
 }
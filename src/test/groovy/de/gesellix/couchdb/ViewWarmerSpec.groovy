@@ -0,0 +1,210 @@
+package de.gesellix.couchdb
+
+import de.gesellix.couchdb.limit.OperationClass
+import de.gesellix.couchdb.moshi.MoshiJson
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+import static okhttp3.MediaType.parse
+
+class ViewWarmerSpec extends Specification {
+
+  CouchDbClient client = Mock(CouchDbClient, constructorArgs: [Mock(Json)])
+
+  def "should register views explicitly"() {
+    given:
+    ViewWarmer warmer = new ViewWarmer(client, 2)
+
+    when:
+    warmer.register("a-db", "_design/A-db", "by_title")
+    warmer.register("a-db", "_design/A-db", ["by_title", "by_author"])
+
+    then:
+    warmer.views == [
+        new ViewWarmer.View("a-db", "_design/A-db", "by_title"),
+        new ViewWarmer.View("a-db", "_design/A-db", "by_author")
+    ] as Set
+
+    cleanup:
+    warmer.close()
+  }
+
+  def "should only warm views of the written database"() {
+    given:
+    ViewWarmer warmer = new ViewWarmer(client, 2)
+    warmer.register("a-db", "_design/A-db", "by_title")
+    warmer.register("a-db", "_design/A-db", "by_author")
+    warmer.register("another-db", "_design/Another-db", "by_title")
+
+    when:
+    warmer.warm("a-db").each { it.get(1, TimeUnit.SECONDS) }
+
+    then:
+    1 * client.warmView("a-db", "_design/A-db", "by_title", null) >> [rows: []]
+    1 * client.warmView("a-db", "_design/A-db", "by_author", null) >> [rows: []]
+    0 * client.warmView("another-db", _, _, _)
+
+    cleanup:
+    warmer.close()
+  }
+
+  def "should ignore failures while warming"() {
+    given:
+    ViewWarmer warmer = new ViewWarmer(client, 1)
+    warmer.register("a-db", "_design/A-db", "by_title")
+
+    when:
+    warmer.warmAll().each { it.get(1, TimeUnit.SECONDS) }
+
+    then:
+    1 * client.warmView("a-db", "_design/A-db", "by_title", null) >> { throw new SocketTimeoutException("timeout") }
+    noExceptionThrown()
+
+    cleanup:
+    warmer.close()
+  }
+
+  def "should warm partitioned views via their partition only"() {
+    given:
+    ViewWarmer warmer = new ViewWarmer(client, 1)
+    warmer.registerPartitioned("a-db", "_design/A-db", "by_title")
+    warmer.register("a-db", "_design/A-db", "by_author", "a-partition")
+
+    when:
+    warmer.warmAll().each { it.get(1, TimeUnit.SECONDS) }
+
+    then:
+    1 * client.warmView("a-db", "_design/A-db", "by_author", "a-partition") >> [rows: []]
+    0 * client.warmView("a-db", "_design/A-db", "by_title", _)
+    warmer.skippedViews == [new ViewWarmer.View("a-db", "_design/A-db", "by_title", true, null)] as Set
+
+    cleanup:
+    warmer.close()
+  }
+
+  def "should register and warm views touched via createOrUpdateView and updateBulk"() {
+    given:
+    List<Request> requests = new CopyOnWriteArrayList<>()
+    CouchDbClient couchDbClient = clientRespondingWith(requests, [props: [:]])
+    ViewWarmer warmer = new ViewWarmer(couchDbClient, 1)
+    couchDbClient.viewWarmer = warmer
+
+    when:
+    couchDbClient.createOrUpdateView("a-db", "_design/A-db", "by_title", "function(doc) { emit(doc.title, null) }", null)
+    couchDbClient.updateBulk("a-db", [[title: "a title"]])
+
+    then:
+    warmer.views == [new ViewWarmer.View("a-db", "_design/A-db", "by_title")] as Set
+    new PollingConditions(timeout: 2).eventually {
+      assert requests*.url()*.encodedPath().contains("/a-db/_design/A-db/_view/by_title")
+    }
+
+    cleanup:
+    warmer.close()
+  }
+
+  def "should skip partitioned views touched via createOrUpdateView"() {
+    given:
+    List<Request> requests = new CopyOnWriteArrayList<>()
+    CouchDbClient couchDbClient = clientRespondingWith(requests, [props: [partitioned: true]])
+    ViewWarmer warmer = new ViewWarmer(couchDbClient, 1)
+    couchDbClient.viewWarmer = warmer
+
+    when:
+    couchDbClient.createOrUpdateView("a-db", "_design/A-db", "by_title", "function(doc) { emit(doc.title, null) }", null)
+    couchDbClient.updateBulk("a-db", [[title: "a title"]])
+    warmer.warm("a-db").each { it.get(1, TimeUnit.SECONDS) }
+
+    then:
+    warmer.skippedViews == [new ViewWarmer.View("a-db", "_design/A-db", "by_title", true, null)] as Set
+    !requests*.url()*.encodedPath().any { it.contains("/_view/") }
+
+    cleanup:
+    warmer.close()
+  }
+
+  def "should warm views with a long read timeout, bypassing the concurrency limiter"() {
+    given:
+    List<Integer> readTimeouts = new CopyOnWriteArrayList<>()
+    CouchDbClient couchDbClient = new CouchDbClient(new MoshiJson())
+    couchDbClient.enableConcurrencyLimiter()
+    // runs after the limiter, and simulates an index build exceeding the read timeout
+    couchDbClient.client = couchDbClient.client.newBuilder()
+        .addInterceptor({ Interceptor.Chain chain ->
+          readTimeouts << chain.readTimeoutMillis()
+          throw new SocketTimeoutException("timeout")
+        } as Interceptor)
+        .build()
+    int viewQueryLimit = couchDbClient.concurrencyLimiter.stats[OperationClass.VIEW_QUERY].limit
+
+    when:
+    couchDbClient.warmView("a-db", "_design/A-db", "by_title")
+
+    then:
+    thrown(SocketTimeoutException)
+    readTimeouts == [couchDbClient.warmViewReadTimeoutMillis as int]
+    couchDbClient.concurrencyLimiter.stats[OperationClass.VIEW_QUERY] == [limit: viewQueryLimit, inFlight: 0, queueDepth: 0]
+  }
+
+  def "should report indexer tasks as progress"() {
+    given:
+    ViewWarmer warmer = new ViewWarmer(client, 1)
+    client.getActiveTasks() >> [
+        [type: "indexer", database: "shards/00000000-7fffffff/a-db.1", design_document: "_design/A-db", progress: 42],
+        [type: "replication"]
+    ]
+
+    when:
+    List<Map> progress = warmer.indexingProgress
+
+    then:
+    progress.size() == 1
+    progress.first().progress == 42
+    warmer.indexing
+
+    cleanup:
+    warmer.close()
+  }
+
+  CouchDbClient clientRespondingWith(List<Request> requests, Map dbInfo) {
+    CouchDbClient couchDbClient = new CouchDbClient(new MoshiJson())
+    couchDbClient.client = new OkHttpClient.Builder()
+        .addInterceptor({ Interceptor.Chain chain ->
+          Request request = chain.request()
+          requests << request
+          String path = request.url().encodedPath()
+          int code = 200
+          String body
+          if (request.method() == "HEAD") {
+            code = 404
+            body = ""
+          } else if (path.endsWith("/_bulk_docs")) {
+            body = '[{"ok":true,"id":"a-doc","rev":"1-a"}]'
+          } else if (request.method() == "PUT") {
+            body = '{"ok":true,"id":"_design/A-db","rev":"1-a"}'
+          } else if (path.contains("/_view/")) {
+            body = '{"total_rows":1,"offset":0,"rows":[]}'
+          } else {
+            body = couchDbClient.json.encodeDocument(dbInfo)
+          }
+          return new Response.Builder()
+              .request(request)
+              .protocol(Protocol.HTTP_1_1)
+              .code(code)
+              .message("fake")
+              .body(ResponseBody.create(body, parse("application/json")))
+              .build()
+        } as Interceptor)
+        .build()
+    return couchDbClient
+  }
+}
@@ -0,0 +1,120 @@
+package de.gesellix.couchdb.limit
+
+import okhttp3.Request
+import okhttp3.RequestBody
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static okhttp3.MediaType.parse
+
+class AdaptiveConcurrencyLimiterSpec extends Specification {
+
+  def "should fail fast when the limit is reached"() {
+    given:
+    def limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10, 1000, 0, 10)
+    limiter.acquire()
+    limiter.acquire()
+
+    when:
+    limiter.acquire()
+
+    then:
+    thrown(ConcurrencyLimitExceededException)
+    limiter.inFlight == 2
+  }
+
+  def "should fail after waiting for the deadline"() {
+    given:
+    def limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 10, 1000, 50, 10)
+    limiter.acquire()
+
+    when:
+    long start = System.nanoTime()
+    limiter.acquire()
+
+    then:
+    thrown(ConcurrencyLimitExceededException)
+    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50
+    limiter.queueDepth == 0
+  }
+
+  def "should pass a permit to a waiting caller"() {
+    given:
+    def limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 1000, 5000, 10)
+    limiter.acquire()
+    def waiting = Thread.start { limiter.acquire() }
+    while (limiter.queueDepth == 0) {
+      Thread.sleep(1)
+    }
+
+    when:
+    limiter.onIgnore()
+    waiting.join(1000)
+
+    then:
+    !waiting.alive
+    limiter.inFlight == 1
+    limiter.queueDepth == 0
+  }
+
+  def "should increase the limit additively on fast responses"() {
+    given:
+    def limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 3, 1000, 0, 10)
+
+    when:
+    limiter.acquire()
+    limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10))
+    limiter.acquire()
+    limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10))
+
+    then:
+    limiter.limit == 3
+    limiter.inFlight == 0
+  }
+
+  def "should decrease the limit multiplicatively on overload and slow responses"() {
+    given:
+    def limiter = new AdaptiveConcurrencyLimiter("test", 10, 5, 10, 1000, 0, 10)
+
+    when:
+    limiter.acquire()
+    limiter.onOverload()
+
+    then:
+    limiter.limit == 9
+
+    when:
+    limiter.acquire()
+    limiter.onSuccess(TimeUnit.SECONDS.toNanos(2))
+
+    then:
+    limiter.limit == 8
+
+    when:
+    10.times {
+      limiter.acquire()
+      limiter.onOverload()
+    }
+
+    then:
+    limiter.limit == 5
+  }
+
+  def "should classify requests"() {
+    expect:
+    OperationClass.of(new Request.Builder().url(url).method(method, body).build()) == operationClass
+
+    where:
+    url                                          | method | body                                        | operationClass
+    "http://localhost/db/doc-1"                  | "GET"  | null                                        | OperationClass.READ
+    "http://localhost/db"                        | "HEAD" | null                                        | OperationClass.READ
+    "http://localhost/db/_design/Db/_view/by_id" | "GET"  | null                                        | OperationClass.VIEW_QUERY
+    "http://localhost/db/_design/Db/_view/by_id" | "POST" | RequestBody.create("{}", parse("application/json")) | OperationClass.VIEW_QUERY
+    "http://localhost/db/_partition/p/_all_docs" | "GET"  | null                                        | OperationClass.VIEW_QUERY
+    "http://localhost/db/_find"                  | "POST" | RequestBody.create("{}", parse("application/json")) | OperationClass.VIEW_QUERY
+    "http://localhost/db/_bulk_docs"             | "POST" | RequestBody.create("{}", parse("application/json")) | OperationClass.BULK_WRITE
+    "http://localhost/db/doc-1"                  | "PUT"  | RequestBody.create("{}", parse("application/json")) | OperationClass.WRITE
+    "http://localhost/db/doc-1?rev=1-a"          | "DELETE" | null                                      | OperationClass.WRITE
+  }
+}
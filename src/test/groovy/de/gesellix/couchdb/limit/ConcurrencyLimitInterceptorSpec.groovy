@@ -0,0 +1,155 @@
+package de.gesellix.couchdb.limit
+
+import com.squareup.moshi.JsonDataException
+import com.squareup.moshi.Types
+import de.gesellix.couchdb.moshi.CompactViewQueryResponse
+import de.gesellix.couchdb.moshi.MoshiJson
+import okhttp3.Interceptor
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody
+import spock.lang.Specification
+
+import static okhttp3.MediaType.parse
+
+class ConcurrencyLimitInterceptorSpec extends Specification {
+
+  Request request = new Request.Builder().url("http://127.0.0.1:5984/a-db/a-doc").get().build()
+  AdaptiveConcurrencyLimiter readLimiter = new AdaptiveConcurrencyLimiter("READ", 10, 1, 100, 60000, 0, 10)
+  ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(
+      ConcurrencyLimitInterceptor.defaultLimiters() + [(OperationClass.READ): readLimiter])
+
+  def "should shrink the limit on status #status"() {
+    given:
+    Interceptor.Chain chain = chainResponding(status, '{"error":"overloaded"}')
+
+    when:
+    Response response = interceptor.intercept(chain)
+
+    then:
+    response.code() == status
+    readLimiter.inFlight == 0
+    readLimiter.limit < 10
+
+    where:
+    status << [429, 503]
+  }
+
+  def "should release the permit and shrink the limit when the call fails"() {
+    given:
+    Interceptor.Chain chain = Stub(Interceptor.Chain) {
+      request() >> request
+      proceed(_) >> { throw new SocketTimeoutException("timeout") }
+    }
+
+    when:
+    interceptor.intercept(chain)
+
+    then:
+    thrown(SocketTimeoutException)
+    readLimiter.inFlight == 0
+    readLimiter.limit < 10
+  }
+
+  def "should neither limit nor sample background requests"() {
+    given:
+    Request warmRequest = BackgroundRequest.tag(new Request.Builder().url("http://127.0.0.1:5984/a-db/_design/A-db/_view/by_title")).build()
+    Interceptor.Chain chain = Stub(Interceptor.Chain) {
+      request() >> warmRequest
+      proceed(_) >> { throw new SocketTimeoutException("timeout") }
+    }
+
+    when:
+    interceptor.intercept(chain)
+
+    then:
+    thrown(SocketTimeoutException)
+    interceptor.limiters[OperationClass.VIEW_QUERY].inFlight == 0
+    interceptor.limiters[OperationClass.VIEW_QUERY].limit == 10
+  }
+
+  def "should release the permit without changing the limit on other errors"() {
+    given:
+    Interceptor.Chain chain = chainResponding(404, '{"error":"not_found"}')
+
+    when:
+    Response response = interceptor.intercept(chain)
+
+    then:
+    response.code() == 404
+    readLimiter.inFlight == 0
+    readLimiter.limit == 10
+  }
+
+  def "should hold the permit until the response body has been read"() {
+    given:
+    Interceptor.Chain chain = chainResponding(200, '{"_id":"a-doc"}')
+
+    when:
+    Response response = interceptor.intercept(chain)
+
+    then:
+    readLimiter.inFlight == 1
+
+    when:
+    String body = response.body().string()
+
+    then:
+    body == '{"_id":"a-doc"}'
+    readLimiter.inFlight == 0
+  }
+
+  def "should release the permit when the response body is closed"() {
+    given:
+    Interceptor.Chain chain = chainResponding(200, '{"_id":"a-doc"}')
+    Response response = interceptor.intercept(chain)
+
+    when:
+    response.close()
+    response.close()
+
+    then:
+    readLimiter.inFlight == 0
+    readLimiter.limit == 10
+  }
+
+  def "should release the permit when the response body fails to decode"() {
+    given:
+    Interceptor.Chain chain = chainResponding(200, '{"total_rows":1,"offset":0,"rows":[{"id":"a","key":2020,"value":1}]}')
+    Response response = interceptor.intercept(chain)
+
+    when:
+    new MoshiJson().consume(response.body().byteStream(), Types.newParameterizedType(CompactViewQueryResponse, String))
+
+    then:
+    thrown(JsonDataException)
+    readLimiter.inFlight == 0
+  }
+
+  def "should report limit, requests in flight and queue depth"() {
+    given:
+    interceptor.intercept(chainResponding(200, '{"_id":"a-doc"}'))
+
+    when:
+    Map<OperationClass, Map<String, Integer>> stats = interceptor.stats
+
+    then:
+    stats.keySet() == OperationClass.values() as Set
+    stats[OperationClass.READ] == [limit: 10, inFlight: 1, queueDepth: 0]
+    stats[OperationClass.BULK_WRITE] == [limit: 4, inFlight: 0, queueDepth: 0]
+  }
+
+  Interceptor.Chain chainResponding(int status, String body) {
+    return Stub(Interceptor.Chain) {
+      request() >> request
+      proceed(_) >> new Response.Builder()
+          .request(request)
+          .protocol(Protocol.HTTP_1_1)
+          .code(status)
+          .message("status ${status}")
+          .body(ResponseBody.create(body, parse("application/json")))
+          .build()
+    }
+  }
+}
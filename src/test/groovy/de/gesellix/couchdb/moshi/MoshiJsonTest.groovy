@@ -1,5 +1,6 @@
 package de.gesellix.couchdb.moshi
 
+import com.squareup.moshi.JsonDataException
 import com.squareup.moshi.Moshi
 import com.squareup.moshi.Types
 import de.gesellix.couchdb.RowWithStringKey
@@ -31,6 +32,19 @@ class MoshiJsonTest extends Specification {
     parsed.rows[0] == [key: null, value: true]
   }
 
+  def "should encode query values of any JSON type"() {
+    expect:
+    new MoshiJson().encodeQueryValue(key as Object) == expected
+
+    where:
+    key               | expected
+    0d                | '0.0'
+    2020              | '2020'
+    false             | 'false'
+    "a ${'title'}"    | '"a title"'
+    ["a", 1, [:]]     | '["a",1,{}]'
+  }
+
   def "should parse a MoshiViewQueryResponse"() {
     given:
     String body = """
@@ -65,6 +79,222 @@ class MoshiJsonTest extends Specification {
     parsed.rows.collect { it.doc.getId() }.contains("test-id/08864933-04df-49cc-9264-257e14c8c894")
   }
 
+  def "should parse a MoshiLazyViewQueryResponse and decode docs on demand"() {
+    given:
+    String body = """
+    {
+      "total_rows": 3,
+      "offset": 0,
+      "rows": [
+        {"id":"test-id/1","key":"A not so unique title","value":"test-id/1","doc":{"_id":"test-id/1","_rev":"1-b0c26e203eba95124a78257df038458f","title":"A not so unique title","nested":{"a":[1,2,3]}}},
+        {"id":"test-id/2","key":"A quite unique title","value":"test-id/2","doc":{"_id":"test-id/2","_rev":"1-fe8b97ce9c0eaefb066ed2253e6ef44a","title":"A quite unique title"}},
+        {"id":"test-id/3","key":"A deleted doc","value":"test-id/3","doc":null}
+      ]
+    }
+    """
+
+    Type docType = Types.newParameterizedType(MapWithDocumentId, Object)
+    Type resultType = Types.newParameterizedType(MoshiLazyViewQueryResponse, String, String, docType)
+
+    when:
+    MoshiLazyViewQueryResponse<String, String, MapWithDocumentId<Object>> parsed = new MoshiJson(
+        new Moshi.Builder().add(new MapWithDocumentIdAdapter())
+    ).consume(new ByteArrayInputStream(body.bytes), resultType)
+
+    then:
+    parsed.totalRows == 3
+    parsed.rows.collect { it.id } == ["test-id/1", "test-id/2", "test-id/3"]
+    parsed.rows.every { !it.docDecoded || it.doc == null }
+
+    when:
+    def doc = parsed.rows[0].doc
+
+    then:
+    doc instanceof MapWithDocumentId
+    doc.getId() == "test-id/1"
+    doc.nested.a == [1, 2, 3]
+    parsed.rows[0].docDecoded
+    !parsed.rows[1].docDecoded
+    parsed.rows[2].doc == null
+  }
+
+  def "should write undecoded lazy docs as they were read"() {
+    given:
+    String body = """{"rows":[{"id":"test-id/1","key":"a-key","value":"test-id/1","doc":{"_id":"test-id/1","title":"A title"}}]}"""
+    Type docType = Types.newParameterizedType(MapWithDocumentId, Object)
+    Type resultType = Types.newParameterizedType(MoshiLazyViewQueryResponse, String, String, docType)
+    MoshiJson json = new MoshiJson(new Moshi.Builder().add(new MapWithDocumentIdAdapter()))
+
+    when:
+    MoshiLazyViewQueryResponse<String, String, MapWithDocumentId<Object>> parsed = json.consume(new ByteArrayInputStream(body.bytes), resultType)
+    String encoded = json.moshi.adapter(resultType).toJson(parsed)
+
+    then:
+    !parsed.rows[0].docDecoded
+    encoded.contains('"doc":{"_id":"test-id/1","title":"A title"}')
+  }
+
+  def "should parse a MoshiLazyAllDocsViewQueryResponse"() {
+    given:
+    String body = """
+    {
+      "total_rows": 1,
+      "offset": 0,
+      "rows": [
+        {"id":"test-id/1","key":"test-id/1","value":{"rev":"1-b0c26e203eba95124a78257df038458f"},"doc":{"_id":"test-id/1","_rev":"1-b0c26e203eba95124a78257df038458f","title":"A title"}}
+      ]
+    }
+    """
+
+    Type docType = Types.newParameterizedType(MapWithDocumentId, Object)
+    Type resultType = Types.newParameterizedType(MoshiLazyAllDocsViewQueryResponse, docType)
+
+    when:
+    MoshiLazyAllDocsViewQueryResponse<MapWithDocumentId<Object>> parsed = new MoshiJson(
+        new Moshi.Builder()
+            .add(new NestedRevisionAdapter())
+            .add(new MapWithDocumentIdAdapter())
+    ).consume(new ByteArrayInputStream(body.bytes), resultType)
+
+    then:
+    parsed.rows.size() == 1
+    parsed.rows[0].rev == "1-b0c26e203eba95124a78257df038458f"
+    !parsed.rows[0].docDecoded
+    parsed.rows[0].doc.title == "A title"
+  }
+
+  def "should not copy the wrapped map"() {
+    given:
+    Map<String, Object> delegate = [_id: "test-id/1"]
+
+    when:
+    MapWithDocumentId<Object> wrapped = new MapWithDocumentId<>(delegate)
+    delegate.title = "A title"
+
+    then:
+    wrapped.getId() == "test-id/1"
+    wrapped.title == "A title"
+    wrapped == [_id: "test-id/1", title: "A title"]
+  }
+
+  def "should parse a CompactViewQueryResponse with numeric keys and values"() {
+    given:
+    String body = """
+    {
+      "total_rows": 3,
+      "offset": 1,
+      "rows": [
+        {"id":"test-id/1","key":2020,"value":1},
+        {"id":"test-id/2","key":2021,"value":2.5},
+        {"id":"test-id/3","key":2022,"value":3}
+      ]
+    }
+    """
+
+    when:
+    CompactViewQueryResponse<Double> parsed = new MoshiJson().consume(
+        new ByteArrayInputStream(body.bytes),
+        Types.newParameterizedType(CompactViewQueryResponse, Double))
+
+    then:
+    parsed.totalRows == 3
+    parsed.offset == 1
+    parsed.hasNumericKeys()
+    parsed.hasNumericValues()
+    parsed.getNumericKey(1) == 2021d
+    parsed.getNumericValue(1) == 2.5d
+    parsed.rows.collect { it.id } == ["test-id/1", "test-id/2", "test-id/3"]
+    parsed.rows[2].key == 2022d
+  }
+
+  def "should parse a CompactViewQueryResponse with complex keys"() {
+    given:
+    String body = """
+    {
+      "total_rows": 4,
+      "offset": 0,
+      "rows": [
+        {"id":"test-id/1","key":["2023-02-02", "A. A. Milne"],"value":1},
+        {"id":"test-id/2","key":["2023-02-02", "Aesop"],"value":"a value"},
+        {"id":"test-id/3","key":["2023-02-03", "Aesop"],"value":null,"doc":{"_id":"test-id/3"}},
+        {"id":"test-id/4","key":null,"value":{"a":1}}
+      ]
+    }
+    """
+
+    when:
+    CompactViewQueryResponse<List<String>> parsed = new MoshiJson().consume(
+        new ByteArrayInputStream(body.bytes),
+        Types.newParameterizedType(CompactViewQueryResponse, Types.newParameterizedType(List, String)))
+
+    then:
+    !parsed.hasNumericKeys()
+    !parsed.hasNumericValues()
+    parsed.rows.collect { it.key } == [
+        ["2023-02-02", "A. A. Milne"],
+        ["2023-02-02", "Aesop"],
+        ["2023-02-03", "Aesop"],
+        null
+    ]
+    parsed.rows.collect { it.value } == [1d, "a value", null, [a: 1d]]
+    parsed.rows.every { it.doc == null }
+    and: "equal strings are shared"
+    parsed.getKey(0)[0].is(parsed.getKey(1)[0])
+    parsed.getKey(1)[1].is(parsed.getKey(2)[1])
+  }
+
+  def "should decode CompactViewQueryResponse keys with the declared key type"() {
+    given:
+    String body = """{"total_rows":2,"offset":0,"rows":[{"id":"a","key":2020,"value":1},{"id":"b","key":2021,"value":2}]}"""
+
+    when:
+    CompactViewQueryResponse<Integer> parsed = new MoshiJson().consume(
+        new ByteArrayInputStream(body.bytes),
+        Types.newParameterizedType(CompactViewQueryResponse, Integer))
+
+    then:
+    !parsed.hasNumericKeys()
+    parsed.getKey(0) instanceof Integer
+    parsed.rows.collect { it.key } == [2020, 2021]
+    parsed.hasNumericValues()
+  }
+
+  def "should fail when CompactViewQueryResponse keys don't match the declared key type"() {
+    given:
+    String body = """{"total_rows":1,"offset":0,"rows":[{"id":"a","key":${key},"value":1}]}"""
+
+    when:
+    new MoshiJson().consume(new ByteArrayInputStream(body.bytes), Types.newParameterizedType(CompactViewQueryResponse, keyType))
+
+    then:
+    def e = thrown(JsonDataException)
+    e.message.contains("\$.rows[0].key")
+
+    where:
+    keyType | key
+    String  | '2020'
+    String  | '["a"]'
+    Double  | '"a"'
+    Integer | '20.5'
+  }
+
+  def "should remove rows from a CompactViewQueryResponse"() {
+    given:
+    String body = """{"total_rows":3,"offset":0,"rows":[{"id":"_design/A","key":"a","value":1},{"id":"b","key":"b","value":2},{"id":"c","key":"c","value":3}]}"""
+    CompactViewQueryResponse<String> parsed = new MoshiJson().consume(
+        new ByteArrayInputStream(body.bytes),
+        Types.newParameterizedType(CompactViewQueryResponse, String))
+
+    when:
+    parsed.rows.removeIf { it.id.startsWith("_design/") }
+    def last = parsed.rows.remove(parsed.rows.size() - 1)
+
+    then:
+    last.id == "c"
+    parsed.size() == 1
+    parsed.rows.collect { [it.id, it.key, it.value] } == [["b", "b", 2d]]
+  }
+
   def "should parse a boring MoshiReducedViewQueryResponse"() {
     given:
     String body = """
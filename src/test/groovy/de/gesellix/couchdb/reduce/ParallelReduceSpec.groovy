@@ -0,0 +1,105 @@
+package de.gesellix.couchdb.reduce
+
+import de.gesellix.couchdb.CouchDbClient
+import de.gesellix.couchdb.FanOutExecutor
+import de.gesellix.couchdb.Json
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ParallelReduceSpec extends Specification {
+
+  CouchDbClient client = Mock(CouchDbClient, constructorArgs: [Mock(Json)])
+
+  def "should query sub-ranges and merge groups spanning a boundary"() {
+    given:
+    def parallelReduce = new ParallelReduce(client, new FanOutExecutor(2))
+
+    when:
+    def result = parallelReduce.query("a-db", "_design/A-db", "by_date",
+        [null, [2021, 7], null], 1, false,
+        ReduceCombiners.SUM,
+        5, TimeUnit.SECONDS)
+
+    then:
+    1 * client.queryReduced("a-db", "_design/A-db", "by_date", null, [2021, 7], false, 1, false) >> [
+        [key: [2020], value: 10d],
+        [key: [2021], value: 6d]
+    ]
+    1 * client.queryReduced("a-db", "_design/A-db", "by_date", [2021, 7], null, true, 1, false) >> [
+        [key: [2021], value: 4d],
+        [key: [2022], value: 1d]
+    ]
+    and:
+    result == [
+        [key: [2020], value: 10d],
+        [key: [2021], value: 10d],
+        [key: [2022], value: 1d]
+    ]
+  }
+
+  def "should merge ungrouped results into a single row"() {
+    expect:
+    ParallelReduce.merge([[[key: null, value: 2d]], [], [[key: null, value: 3d]]], ReduceCombiners.COUNT) == [
+        [key: null, value: 5d]
+    ]
+  }
+
+  def "should fail when a sub-range fails"() {
+    given:
+    def parallelReduce = new ParallelReduce(client, new FanOutExecutor(2))
+    client.queryReduced(_, _, _, "a", "m", false, null, true) >> [[key: "a", value: 1d]]
+    client.queryReduced(_, _, _, "m", "z", true, null, true) >> { throw new IllegalStateException("could not query view") }
+
+    when:
+    parallelReduce.query("a-db", "_design/A-db", "by_title", ["a", "m", "z"], null, true, ReduceCombiners.SUM, 5, TimeUnit.SECONDS)
+
+    then:
+    def e = thrown(IllegalStateException)
+    e.cause.message == "could not query view"
+  }
+
+  def "should require start and end boundaries"() {
+    when:
+    new ParallelReduce(client, new FanOutExecutor(2)).query("a-db", "_design/A-db", "by_title", boundaries, null, true, ReduceCombiners.SUM, 5, TimeUnit.SECONDS)
+
+    then:
+    thrown(IllegalArgumentException)
+
+    where:
+    boundaries << [null, ["a"], ["a", null, "z"]]
+  }
+
+  def "should require boundaries in ascending order"() {
+    when:
+    new ParallelReduce(client, new FanOutExecutor(2)).query("a-db", "_design/A-db", "by_title", boundaries, null, true, ReduceCombiners.SUM, 5, TimeUnit.SECONDS)
+
+    then:
+    def e = thrown(IllegalArgumentException)
+    e.message.startsWith("boundaries must be in ascending order")
+    0 * client.queryReduced(*_)
+
+    where:
+    boundaries << [["m", "a"], [null, ["b"], ["a"], null], ["a", "a"], [null, 10, 2, null]]
+  }
+
+  def "should collate keys like CouchDB"() {
+    expect:
+    Math.signum(new ViewKeyCollator().compare(lower, upper)) == -1
+
+    where:
+    lower         | upper
+    null          | false
+    false         | true
+    true          | 1
+    2             | 10
+    10            | "a"
+    "a"           | "A"
+    "A"           | "b"
+    "z"           | ["a"]
+    ["a"]         | ["a", null]
+    ["a", 2]      | ["a", "b"]
+    ["z"]         | [:]
+    [a: 1]        | [a: 2]
+  }
+}
@@ -0,0 +1,41 @@
+package de.gesellix.couchdb.reduce
+
+import spock.lang.Specification
+
+class ReduceCombinersSpec extends Specification {
+
+  def "should sum numbers, arrays, and objects"() {
+    expect:
+    ReduceCombiners.SUM.combine(left, right) == expected
+
+    where:
+    left           | right            | expected
+    1d             | 2d               | 3d
+    null           | 2d               | 2d
+    [1d, 2d]       | [3d, 4d, 5d]     | [4d, 6d, 5d]
+    [a: 1d, b: 2d] | [b: 3d, c: 4d]   | [a: 1d, b: 5d, c: 4d]
+  }
+
+  def "should merge stats"() {
+    given:
+    def left = [sum: 10d, count: 2d, min: 3d, max: 7d, sumsqr: 58d]
+    def right = [sum: 5d, count: 2d, min: 1d, max: 4d, sumsqr: 17d]
+
+    expect:
+    ReduceCombiners.STATS.combine(left, right) == [sum: 15d, count: 4d, min: 1d, max: 7d, sumsqr: 75d]
+    ReduceCombiners.STATS.combine([left], [right]) == [[sum: 15d, count: 4d, min: 1d, max: 7d, sumsqr: 75d]]
+  }
+
+  def "should find combiners for built-in reduce functions"() {
+    expect:
+    ReduceCombiners.forBuiltin("_sum").is(ReduceCombiners.SUM)
+    ReduceCombiners.forBuiltin("_count").is(ReduceCombiners.COUNT)
+    ReduceCombiners.forBuiltin("_stats").is(ReduceCombiners.STATS)
+
+    when:
+    ReduceCombiners.forBuiltin("_approx_count_distinct")
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+}